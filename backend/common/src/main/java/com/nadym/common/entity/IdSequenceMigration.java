@@ -0,0 +1,62 @@
+package com.nadym.common.entity;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves every {@link BaseEntity} id sequence past the highest id already in its table. Tables
+ * created when ids were IDENTITY columns keep their rows, and the sequences Hibernate adds for
+ * them start at 1, so without this the first inserts would collide. Sequences are only ever
+ * moved forward, which makes the check safe to run on every startup and on every replica.
+ */
+@Component
+public class IdSequenceMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceMigration.class);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${nadym.id-sequences.align-on-startup:true}")
+    private boolean enabled;
+
+    // The entity manager factory is built, and the schema updated, before this runs
+    @PostConstruct
+    void alignSequences() {
+        if (!enabled) {
+            return;
+        }
+
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        sessionFactory.getMappingMetamodel().forEachEntityDescriptor(persister -> {
+            if (!BaseEntity.class.isAssignableFrom(persister.getMappedClass())
+                    || !(persister.getGenerator() instanceof SequenceStyleGenerator generator)
+                    || !(persister instanceof AbstractEntityPersister entityPersister)) {
+                return;
+            }
+
+            String sequence = generator.getDatabaseStructure().getPhysicalName().render();
+            String table = entityPersister.getIdentifierTableName();
+            List<Long> moved = jdbcTemplate.queryForList(
+                    "SELECT setval('" + sequence + "', t.max_id) FROM (SELECT MAX(id) AS max_id FROM " + table + ") t " +
+                    "WHERE t.max_id >= (SELECT last_value FROM " + sequence + ")", Long.class);
+            if (!moved.isEmpty()) {
+                log.info("Moved id sequence {} past existing rows of {} (now {})", sequence, table, moved.get(0));
+            }
+        });
+    }
+}
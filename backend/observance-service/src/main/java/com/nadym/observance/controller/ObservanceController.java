@@ -1,8 +1,14 @@
 package com.nadym.observance.controller;
 
+import com.nadym.observance.dto.AdherenceQueryDto;
+import com.nadym.observance.dto.AdherenceSeriesDto;
+import com.nadym.observance.dto.AdherenceSummaryDto;
 import com.nadym.observance.dto.MedicationIntakeDto;
 import com.nadym.observance.entity.MedicationIntake;
+import com.nadym.observance.service.AdherenceAnalyticsService;
+import com.nadym.observance.service.AdherenceCounters;
 import com.nadym.observance.service.ObservanceService;
+import com.nadym.observance.service.OverdueIntakeSubscriptions;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -11,9 +17,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -26,6 +34,15 @@ public class ObservanceController {
     @Autowired
     private ObservanceService observanceService;
 
+    @Autowired
+    private AdherenceCounters adherenceCounters;
+
+    @Autowired
+    private AdherenceAnalyticsService adherenceAnalyticsService;
+
+    @Autowired
+    private OverdueIntakeSubscriptions overdueIntakeSubscriptions;
+
     @GetMapping("/patient/{patientId}")
     @Operation(summary = "Get patient medication intakes")
     @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE') or (hasRole('PATIENT') and #patientId == authentication.principal.claims['patient_id'])")
@@ -68,13 +85,24 @@ public class ObservanceController {
     }
 
     @GetMapping("/overdue")
-    @Operation(summary = "Get overdue medication intakes")
+    @Operation(summary = "Get overdue medication intakes", description = "Oldest first")
     @PreAuthorize("hasRole('NURSE') or hasRole('DOCTOR')")
-    public ResponseEntity<List<MedicationIntake>> getOverdueIntakes() {
-        List<MedicationIntake> intakes = observanceService.getOverdueIntakes();
+    public ResponseEntity<Page<MedicationIntake>> getOverdueIntakes(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        
+        Pageable pageable = PageRequest.of(page, size);
+        Page<MedicationIntake> intakes = observanceService.getOverdueIntakes(pageable);
         return ResponseEntity.ok(intakes);
     }
 
+    @GetMapping(value = "/overdue/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Subscribe to overdue medication intakes", description = "Emits 'overdue' events as intakes pass their scheduled time and 'missed' events when the grace period marks them MISSED")
+    @PreAuthorize("hasRole('NURSE') or hasRole('DOCTOR')")
+    public SseEmitter subscribeToOverdueIntakes(@RequestParam(required = false) Long patientId) {
+        return overdueIntakeSubscriptions.subscribe(patientId);
+    }
+
     @GetMapping("/patient/{patientId}/adherence")
     @Operation(summary = "Calculate patient adherence rate")
     @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE')")
@@ -82,4 +110,46 @@ public class ObservanceController {
         double rate = observanceService.calculateAdherenceRate(patientId);
         return ResponseEntity.ok(rate);
     }
+
+    @GetMapping("/patient/{patientId}/adherence/rolling")
+    @Operation(summary = "Get rolling 7/30/90-day adherence", description = "Optionally restricted to one prescription item")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE')")
+    public ResponseEntity<AdherenceSummaryDto> getRollingAdherence(
+            @PathVariable Long patientId,
+            @RequestParam(required = false) Long prescriptionItemId) {
+        
+        return ResponseEntity.ok(observanceService.getRollingAdherence(patientId, prescriptionItemId));
+    }
+
+    @GetMapping("/patient/{patientId}/adherence/series")
+    @Operation(summary = "Get patient adherence time series", description = "Taken/missed counts and rates per day, week or month")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE')")
+    public ResponseEntity<AdherenceSeriesDto> getAdherenceSeries(
+            @PathVariable Long patientId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+            @RequestParam(defaultValue = "day") String bucket) {
+        
+        AdherenceQueryDto query = new AdherenceQueryDto();
+        query.setPatientIds(List.of(patientId));
+        query.setStart(start);
+        query.setEnd(end);
+        query.setBucket(bucket);
+        return ResponseEntity.ok(adherenceAnalyticsService.getSeries(query));
+    }
+
+    @PostMapping("/analytics/adherence")
+    @Operation(summary = "Get cohort adherence time series", description = "Aggregated curve for a set of patients, optionally with one series per patient")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE')")
+    public ResponseEntity<AdherenceSeriesDto> getCohortAdherence(@Valid @RequestBody AdherenceQueryDto query) {
+        return ResponseEntity.ok(adherenceAnalyticsService.getSeries(query));
+    }
+
+    @PostMapping("/adherence/reconcile")
+    @Operation(summary = "Rebuild adherence counters from recorded intakes")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> reconcileAdherence() {
+        adherenceCounters.reconcile();
+        return ResponseEntity.noContent().build();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.nadym.observance.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class AdherenceQueryDto {
+
+    @NotEmpty(message = "At least one patient ID is required")
+    private List<Long> patientIds;
+
+    @NotNull(message = "Start is required")
+    private LocalDateTime start;
+
+    @NotNull(message = "End is required")
+    private LocalDateTime end;
+
+    private String bucket = "day";
+
+    private boolean includePatients;
+
+    // Constructors
+    public AdherenceQueryDto() {}
+
+    // Getters and Setters
+    public List<Long> getPatientIds() { return patientIds; }
+    public void setPatientIds(List<Long> patientIds) { this.patientIds = patientIds; }
+
+    public LocalDateTime getStart() { return start; }
+    public void setStart(LocalDateTime start) { this.start = start; }
+
+    public LocalDateTime getEnd() { return end; }
+    public void setEnd(LocalDateTime end) { this.end = end; }
+
+    public String getBucket() { return bucket; }
+    public void setBucket(String bucket) { this.bucket = bucket; }
+
+    public boolean isIncludePatients() { return includePatients; }
+    public void setIncludePatients(boolean includePatients) { this.includePatients = includePatients; }
+}
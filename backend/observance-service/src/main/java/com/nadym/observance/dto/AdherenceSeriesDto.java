@@ -0,0 +1,68 @@
+package com.nadym.observance.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Adherence time series. Every array is aligned with {@code buckets}; a rate is null for a
+ * bucket without any taken or missed intake.
+ */
+public class AdherenceSeriesDto {
+
+    private String bucket;
+    private List<LocalDateTime> buckets;
+    private Series cohort;
+    private List<Series> patients;
+
+    // Constructors
+    public AdherenceSeriesDto() {}
+
+    // Getters and Setters
+    public String getBucket() { return bucket; }
+    public void setBucket(String bucket) { this.bucket = bucket; }
+
+    public List<LocalDateTime> getBuckets() { return buckets; }
+    public void setBuckets(List<LocalDateTime> buckets) { this.buckets = buckets; }
+
+    public Series getCohort() { return cohort; }
+    public void setCohort(Series cohort) { this.cohort = cohort; }
+
+    public List<Series> getPatients() { return patients; }
+    public void setPatients(List<Series> patients) { this.patients = patients; }
+
+    public static class Series {
+
+        private Long patientId;
+        private long[] taken;
+        private long[] missed;
+        private Double[] rate;
+        private Double[] cumulativeRate;
+
+        // Constructors
+        public Series() {}
+
+        public Series(Long patientId, int size) {
+            this.patientId = patientId;
+            this.taken = new long[size];
+            this.missed = new long[size];
+            this.rate = new Double[size];
+            this.cumulativeRate = new Double[size];
+        }
+
+        // Getters and Setters
+        public Long getPatientId() { return patientId; }
+        public void setPatientId(Long patientId) { this.patientId = patientId; }
+
+        public long[] getTaken() { return taken; }
+        public void setTaken(long[] taken) { this.taken = taken; }
+
+        public long[] getMissed() { return missed; }
+        public void setMissed(long[] missed) { this.missed = missed; }
+
+        public Double[] getRate() { return rate; }
+        public void setRate(Double[] rate) { this.rate = rate; }
+
+        public Double[] getCumulativeRate() { return cumulativeRate; }
+        public void setCumulativeRate(Double[] cumulativeRate) { this.cumulativeRate = cumulativeRate; }
+    }
+}
@@ -0,0 +1,29 @@
+package com.nadym.observance.dto;
+
+import java.util.List;
+
+public class AdherenceSummaryDto {
+
+    private Long patientId;
+    private Long prescriptionItemId;
+    private List<AdherenceWindowDto> windows;
+
+    // Constructors
+    public AdherenceSummaryDto() {}
+
+    public AdherenceSummaryDto(Long patientId, Long prescriptionItemId, List<AdherenceWindowDto> windows) {
+        this.patientId = patientId;
+        this.prescriptionItemId = prescriptionItemId;
+        this.windows = windows;
+    }
+
+    // Getters and Setters
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+
+    public Long getPrescriptionItemId() { return prescriptionItemId; }
+    public void setPrescriptionItemId(Long prescriptionItemId) { this.prescriptionItemId = prescriptionItemId; }
+
+    public List<AdherenceWindowDto> getWindows() { return windows; }
+    public void setWindows(List<AdherenceWindowDto> windows) { this.windows = windows; }
+}
@@ -0,0 +1,44 @@
+package com.nadym.observance.dto;
+
+public class AdherenceWindowDto {
+
+    private Integer days;
+    private Long taken;
+    private Long missed;
+    private Long late;
+    private Double adherenceRate;
+
+    // Constructors
+    public AdherenceWindowDto() {}
+
+    public AdherenceWindowDto(Integer days, Long taken, Long missed, Long late) {
+        this.days = days;
+        this.taken = taken;
+        this.missed = missed;
+        this.late = late;
+        this.adherenceRate = rate(taken, missed);
+    }
+
+    // Same definition as the all-time rate: taken out of taken plus missed, as a percentage
+    public static double rate(long taken, long missed) {
+        long total = taken + missed;
+        if (total == 0) return 0.0;
+        return (double) taken / total * 100;
+    }
+
+    // Getters and Setters
+    public Integer getDays() { return days; }
+    public void setDays(Integer days) { this.days = days; }
+
+    public Long getTaken() { return taken; }
+    public void setTaken(Long taken) { this.taken = taken; }
+
+    public Long getMissed() { return missed; }
+    public void setMissed(Long missed) { this.missed = missed; }
+
+    public Long getLate() { return late; }
+    public void setLate(Long late) { this.late = late; }
+
+    public Double getAdherenceRate() { return adherenceRate; }
+    public void setAdherenceRate(Double adherenceRate) { this.adherenceRate = adherenceRate; }
+}
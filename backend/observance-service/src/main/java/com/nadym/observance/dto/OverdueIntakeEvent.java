@@ -0,0 +1,46 @@
+package com.nadym.observance.dto;
+
+import java.time.LocalDateTime;
+
+public class OverdueIntakeEvent {
+
+    private Type type;
+    private Long intakeId;
+    private Long patientId;
+    private Long prescriptionItemId;
+    private LocalDateTime scheduledTime;
+
+    // Constructors
+    public OverdueIntakeEvent() {}
+
+    public OverdueIntakeEvent(Type type, Long intakeId, Long patientId, Long prescriptionItemId, LocalDateTime scheduledTime) {
+        this.type = type;
+        this.intakeId = intakeId;
+        this.patientId = patientId;
+        this.prescriptionItemId = prescriptionItemId;
+        this.scheduledTime = scheduledTime;
+    }
+
+    // Getters and Setters
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public Long getIntakeId() { return intakeId; }
+    public void setIntakeId(Long intakeId) { this.intakeId = intakeId; }
+
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+
+    public Long getPrescriptionItemId() { return prescriptionItemId; }
+    public void setPrescriptionItemId(Long prescriptionItemId) { this.prescriptionItemId = prescriptionItemId; }
+
+    public LocalDateTime getScheduledTime() { return scheduledTime; }
+    public void setScheduledTime(LocalDateTime scheduledTime) { this.scheduledTime = scheduledTime; }
+
+    public enum Type {
+        // The scheduled time passed without an intake being recorded
+        OVERDUE,
+        // The grace period passed too and the intake was marked MISSED
+        MISSED
+    }
+}
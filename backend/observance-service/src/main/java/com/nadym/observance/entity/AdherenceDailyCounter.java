@@ -0,0 +1,85 @@
+package com.nadym.observance.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Taken/missed/late intake counts for one patient, prescription item and day. Rows are only
+ * written by the upserts in AdherenceCounterRepository, so they carry no id, version or audit
+ * columns of their own.
+ */
+@Entity
+@Table(name = "adherence_daily_counters", indexes = {
+        @Index(name = "idx_adherence_daily_patient_day", columnList = "patient_id, intake_day")
+})
+@IdClass(AdherenceDailyCounter.Key.class)
+public class AdherenceDailyCounter {
+
+    @Id
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Id
+    @Column(name = "prescription_item_id", nullable = false)
+    private Long prescriptionItemId;
+
+    @Id
+    @Column(name = "intake_day", nullable = false)
+    private LocalDate intakeDay;
+
+    @Column(name = "taken_count", nullable = false)
+    private long takenCount;
+
+    @Column(name = "missed_count", nullable = false)
+    private long missedCount;
+
+    @Column(name = "late_count", nullable = false)
+    private long lateCount;
+
+    // Constructors
+    public AdherenceDailyCounter() {}
+
+    // Getters and Setters
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+
+    public Long getPrescriptionItemId() { return prescriptionItemId; }
+    public void setPrescriptionItemId(Long prescriptionItemId) { this.prescriptionItemId = prescriptionItemId; }
+
+    public LocalDate getIntakeDay() { return intakeDay; }
+    public void setIntakeDay(LocalDate intakeDay) { this.intakeDay = intakeDay; }
+
+    public long getTakenCount() { return takenCount; }
+    public void setTakenCount(long takenCount) { this.takenCount = takenCount; }
+
+    public long getMissedCount() { return missedCount; }
+    public void setMissedCount(long missedCount) { this.missedCount = missedCount; }
+
+    public long getLateCount() { return lateCount; }
+    public void setLateCount(long lateCount) { this.lateCount = lateCount; }
+
+    public static class Key implements Serializable {
+
+        private Long patientId;
+        private Long prescriptionItemId;
+        private LocalDate intakeDay;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(patientId, key.patientId)
+                    && Objects.equals(prescriptionItemId, key.prescriptionItemId)
+                    && Objects.equals(intakeDay, key.intakeDay);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(patientId, prescriptionItemId, intakeDay);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.nadym.observance.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * All-time taken/missed/late intake counts for one patient, maintained alongside the daily
+ * counters so the overall adherence rate is a single-row read.
+ */
+@Entity
+@Table(name = "adherence_totals")
+public class AdherenceTotal {
+
+    @Id
+    @Column(name = "patient_id", nullable = false)
+    private Long patientId;
+
+    @Column(name = "taken_count", nullable = false)
+    private long takenCount;
+
+    @Column(name = "missed_count", nullable = false)
+    private long missedCount;
+
+    @Column(name = "late_count", nullable = false)
+    private long lateCount;
+
+    // Constructors
+    public AdherenceTotal() {}
+
+    // Getters and Setters
+    public Long getPatientId() { return patientId; }
+    public void setPatientId(Long patientId) { this.patientId = patientId; }
+
+    public long getTakenCount() { return takenCount; }
+    public void setTakenCount(long takenCount) { this.takenCount = takenCount; }
+
+    public long getMissedCount() { return missedCount; }
+    public void setMissedCount(long missedCount) { this.missedCount = missedCount; }
+
+    public long getLateCount() { return lateCount; }
+    public void setLateCount(long lateCount) { this.lateCount = lateCount; }
+}
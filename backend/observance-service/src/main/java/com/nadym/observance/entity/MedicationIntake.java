@@ -7,7 +7,12 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "medication_intakes")
+@Table(name = "medication_intakes", indexes = {
+        // Covers the analytics queries: filter on patient and time, count by status without touching the table
+        @Index(name = "idx_medication_intakes_patient_time_status", columnList = "patient_id, scheduled_time, status"),
+        // Overdue detection and the grace-period sweep only touch intakes still SCHEDULED
+        @Index(name = "idx_medication_intakes_status_time", columnList = "status, scheduled_time, id")
+})
 public class MedicationIntake extends BaseEntity {
 
     @NotNull(message = "Patient ID is required")
@@ -7,7 +7,9 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reminders")
+@Table(name = "reminders", indexes = {
+        @Index(name = "idx_reminders_status_time", columnList = "status, reminder_time")
+})
 public class Reminder extends BaseEntity {
 
     @NotNull(message = "Patient ID is required")
@@ -39,6 +41,13 @@ public class Reminder extends BaseEntity {
     @Column(name = "acknowledged_at")
     private LocalDateTime acknowledgedAt;
 
+    // Replica that has loaded the reminder for dispatch, and until when
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
     // Constructors
     public Reminder() {}
 
@@ -67,6 +76,12 @@ public class Reminder extends BaseEntity {
     public LocalDateTime getAcknowledgedAt() { return acknowledgedAt; }
     public void setAcknowledgedAt(LocalDateTime acknowledgedAt) { this.acknowledgedAt = acknowledgedAt; }
 
+    public String getLeaseOwner() { return leaseOwner; }
+    public void setLeaseOwner(String leaseOwner) { this.leaseOwner = leaseOwner; }
+
+    public LocalDateTime getLeaseUntil() { return leaseUntil; }
+    public void setLeaseUntil(LocalDateTime leaseUntil) { this.leaseUntil = leaseUntil; }
+
     public enum ReminderType {
         MEDICATION_TIME, REFILL_NEEDED, APPOINTMENT_REMINDER, SIDE_EFFECT_CHECK
     }
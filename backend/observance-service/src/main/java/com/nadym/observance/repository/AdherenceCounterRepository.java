@@ -0,0 +1,126 @@
+package com.nadym.observance.repository;
+
+import com.nadym.observance.entity.AdherenceDailyCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface AdherenceCounterRepository extends JpaRepository<AdherenceDailyCounter, AdherenceDailyCounter.Key> {
+
+    // Counts for the 7, 30 and 90 days up to and including :today, read from at most 90 rows per item
+    String WINDOWS = "SELECT w.days AS days, COALESCE(SUM(c.taken_count), 0) AS taken, " +
+                     "COALESCE(SUM(c.missed_count), 0) AS missed, COALESCE(SUM(c.late_count), 0) AS late " +
+                     "FROM (VALUES (7), (30), (90)) AS w(days) " +
+                     "LEFT JOIN adherence_daily_counters c ON c.patient_id = :patientId " +
+                     "AND c.intake_day > CAST(:today AS date) - w.days AND c.intake_day <= CAST(:today AS date) ";
+
+    @Modifying
+    @Query(value = "INSERT INTO adherence_daily_counters " +
+                   "(patient_id, prescription_item_id, intake_day, taken_count, missed_count, late_count) " +
+                   "VALUES (:patientId, :itemId, :day, :taken, :missed, :late) " +
+                   "ON CONFLICT (patient_id, prescription_item_id, intake_day) DO UPDATE SET " +
+                   "taken_count = adherence_daily_counters.taken_count + EXCLUDED.taken_count, " +
+                   "missed_count = adherence_daily_counters.missed_count + EXCLUDED.missed_count, " +
+                   "late_count = adherence_daily_counters.late_count + EXCLUDED.late_count",
+           nativeQuery = true)
+    void addDaily(@Param("patientId") Long patientId, @Param("itemId") Long prescriptionItemId,
+                  @Param("day") LocalDate day, @Param("taken") long taken,
+                  @Param("missed") long missed, @Param("late") long late);
+
+    @Modifying
+    @Query(value = "INSERT INTO adherence_totals (patient_id, taken_count, missed_count, late_count) " +
+                   "VALUES (:patientId, :taken, :missed, :late) " +
+                   "ON CONFLICT (patient_id) DO UPDATE SET " +
+                   "taken_count = adherence_totals.taken_count + EXCLUDED.taken_count, " +
+                   "missed_count = adherence_totals.missed_count + EXCLUDED.missed_count, " +
+                   "late_count = adherence_totals.late_count + EXCLUDED.late_count",
+           nativeQuery = true)
+    void addTotal(@Param("patientId") Long patientId, @Param("taken") long taken,
+                  @Param("missed") long missed, @Param("late") long late);
+
+    @Query(value = WINDOWS + "GROUP BY w.days ORDER BY w.days", nativeQuery = true)
+    List<WindowCounts> findWindows(@Param("patientId") Long patientId, @Param("today") LocalDate today);
+
+    @Query(value = WINDOWS + "AND c.prescription_item_id = :itemId GROUP BY w.days ORDER BY w.days", nativeQuery = true)
+    List<WindowCounts> findWindowsForItem(@Param("patientId") Long patientId, @Param("itemId") Long prescriptionItemId,
+                                          @Param("today") LocalDate today);
+
+    // Only one replica at a time rebuilds; the others see false and skip
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('adherence-reconciliation'))", nativeQuery = true)
+    boolean tryReconciliationLock();
+
+    // Held by every transaction that increments counters, until it commits
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock_shared(hashtext('adherence-counters'))", nativeQuery = true)
+    int lockCountersShared();
+
+    // Waits for in-flight increments to commit and holds new ones back until the rebuild commits
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(hashtext('adherence-counters'))", nativeQuery = true)
+    int lockCountersExclusive();
+
+    // Overwrites the counters in place and skips rows that already hold the right counts. Only safe under
+    // lockCountersExclusive: an increment committed after this statement's snapshot would be overwritten.
+    // The late rule must match AdherenceCounters.isLate
+    @Modifying
+    @Query(value = "INSERT INTO adherence_daily_counters " +
+                   "(patient_id, prescription_item_id, intake_day, taken_count, missed_count, late_count) " +
+                   "SELECT mi.patient_id, mi.prescription_item_id, CAST(mi.scheduled_time AS date), " +
+                   "COUNT(*) FILTER (WHERE mi.status = 'TAKEN'), " +
+                   "COUNT(*) FILTER (WHERE mi.status = 'MISSED'), " +
+                   "COUNT(*) FILTER (WHERE mi.status = 'TAKEN' " +
+                   "AND mi.actual_time > mi.scheduled_time + make_interval(mins => :lateMinutes)) " +
+                   "FROM medication_intakes mi WHERE mi.status IN ('TAKEN', 'MISSED') " +
+                   "GROUP BY mi.patient_id, mi.prescription_item_id, CAST(mi.scheduled_time AS date) " +
+                   "ON CONFLICT (patient_id, prescription_item_id, intake_day) DO UPDATE SET " +
+                   "taken_count = EXCLUDED.taken_count, missed_count = EXCLUDED.missed_count, " +
+                   "late_count = EXCLUDED.late_count " +
+                   "WHERE (adherence_daily_counters.taken_count, adherence_daily_counters.missed_count, " +
+                   "adherence_daily_counters.late_count) IS DISTINCT FROM " +
+                   "(EXCLUDED.taken_count, EXCLUDED.missed_count, EXCLUDED.late_count)",
+           nativeQuery = true)
+    int rebuildDaily(@Param("lateMinutes") int lateMinutes);
+
+    // Days left without any counted intake
+    @Modifying
+    @Query(value = "DELETE FROM adherence_daily_counters c WHERE NOT EXISTS (" +
+                   "SELECT 1 FROM medication_intakes mi " +
+                   "WHERE mi.patient_id = c.patient_id AND mi.prescription_item_id = c.prescription_item_id " +
+                   "AND mi.scheduled_time >= c.intake_day AND mi.scheduled_time < c.intake_day + 1 " +
+                   "AND mi.status IN ('TAKEN', 'MISSED'))",
+           nativeQuery = true)
+    int deleteStaleDaily();
+
+    @Modifying
+    @Query(value = "INSERT INTO adherence_totals (patient_id, taken_count, missed_count, late_count) " +
+                   "SELECT c.patient_id, SUM(c.taken_count), SUM(c.missed_count), SUM(c.late_count) " +
+                   "FROM adherence_daily_counters c GROUP BY c.patient_id " +
+                   "ON CONFLICT (patient_id) DO UPDATE SET " +
+                   "taken_count = EXCLUDED.taken_count, missed_count = EXCLUDED.missed_count, " +
+                   "late_count = EXCLUDED.late_count " +
+                   "WHERE (adherence_totals.taken_count, adherence_totals.missed_count, adherence_totals.late_count) " +
+                   "IS DISTINCT FROM (EXCLUDED.taken_count, EXCLUDED.missed_count, EXCLUDED.late_count)",
+           nativeQuery = true)
+    int rebuildTotals();
+
+    @Modifying
+    @Query(value = "DELETE FROM adherence_totals t WHERE NOT EXISTS (" +
+                   "SELECT 1 FROM adherence_daily_counters c WHERE c.patient_id = t.patient_id)",
+           nativeQuery = true)
+    int deleteStaleTotals();
+
+    interface WindowCounts {
+
+        Integer getDays();
+
+        Long getTaken();
+
+        Long getMissed();
+
+        Long getLate();
+    }
+}
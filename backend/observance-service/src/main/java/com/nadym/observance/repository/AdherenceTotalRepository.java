@@ -0,0 +1,9 @@
+package com.nadym.observance.repository;
+
+import com.nadym.observance.entity.AdherenceTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AdherenceTotalRepository extends JpaRepository<AdherenceTotal, Long> {
+}
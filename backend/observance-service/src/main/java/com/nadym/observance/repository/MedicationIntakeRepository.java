@@ -19,13 +19,8 @@ public interface MedicationIntakeRepository extends JpaRepository<MedicationInta
     List<MedicationIntake> findByPatientIdAndScheduledTimeBetween(
             Long patientId, LocalDateTime start, LocalDateTime end);
 
-    @Query("SELECT mi FROM MedicationIntake mi WHERE mi.status = :status AND mi.scheduledTime <= :time")
-    List<MedicationIntake> findOverdueIntakes(@Param("status") MedicationIntake.IntakeStatus status, 
-                                             @Param("time") LocalDateTime time);
-
-    @Query("SELECT COUNT(mi) FROM MedicationIntake mi WHERE mi.patientId = :patientId AND mi.status = 'TAKEN'")
-    long countTakenByPatientId(@Param("patientId") Long patientId);
-
-    @Query("SELECT COUNT(mi) FROM MedicationIntake mi WHERE mi.patientId = :patientId AND mi.status = 'MISSED'")
-    long countMissedByPatientId(@Param("patientId") Long patientId);
+    @Query("SELECT mi FROM MedicationIntake mi WHERE mi.status = :status AND mi.scheduledTime <= :time " +
+           "ORDER BY mi.scheduledTime, mi.id")
+    Page<MedicationIntake> findOverdueIntakes(@Param("status") MedicationIntake.IntakeStatus status,
+                                             @Param("time") LocalDateTime time, Pageable pageable);
 }
\ No newline at end of file
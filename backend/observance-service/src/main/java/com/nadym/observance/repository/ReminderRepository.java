@@ -0,0 +1,59 @@
+package com.nadym.observance.repository;
+
+import com.nadym.observance.entity.Reminder;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ReminderRepository extends JpaRepository<Reminder, Long> {
+
+    @Query(value = "SELECT * FROM reminders r " +
+                   "WHERE r.status = 'PENDING' AND r.reminder_time < :horizon " +
+                   "AND (r.lease_until IS NULL OR r.lease_until < :now) " +
+                   "ORDER BY r.reminder_time LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Reminder> lockDue(@Param("horizon") LocalDateTime horizon,
+                           @Param("now") LocalDateTime now,
+                           @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE reminders SET lease_owner = :owner, lease_until = :leaseUntil WHERE id IN (:ids)",
+           nativeQuery = true)
+    int lease(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Only rows still leased by the caller: a reminder whose lease was lost is left to its new owner
+    @Modifying
+    @Query(value = "UPDATE reminders SET status = 'SENT', sent_at = :sentAt, updated_at = :sentAt, " +
+                   "version = version + 1, lease_owner = NULL, lease_until = NULL " +
+                   "WHERE id IN (:ids) AND lease_owner = :owner AND status = 'PENDING'",
+           nativeQuery = true)
+    int markSent(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+                 @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query(value = "UPDATE reminders SET lease_owner = NULL, lease_until = NULL " +
+                   "WHERE id IN (:ids) AND lease_owner = :owner",
+           nativeQuery = true)
+    int release(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
+
+    @Modifying
+    @Query(value = "UPDATE reminders SET lease_owner = NULL, lease_until = NULL " +
+                   "WHERE lease_owner = :owner AND status = 'PENDING'",
+           nativeQuery = true)
+    int releaseAll(@Param("owner") String owner);
+
+    @Modifying
+    @Query(value = "UPDATE reminders SET status = 'EXPIRED', updated_at = :now, version = version + 1 " +
+                   "WHERE status = 'PENDING' AND reminder_time < :before " +
+                   "AND (lease_until IS NULL OR lease_until < :now)",
+           nativeQuery = true)
+    int expirePending(@Param("before") LocalDateTime before, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,157 @@
+package com.nadym.observance.service;
+
+import com.nadym.common.exception.ValidationException;
+import com.nadym.observance.dto.AdherenceQueryDto;
+import com.nadym.observance.dto.AdherenceSeriesDto;
+import com.nadym.observance.dto.AdherenceWindowDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Adherence curves for one patient or a cohort. Bucketing and counting happen in Postgres,
+ * reading only the (patient_id, scheduled_time, status) index, and the per-patient running
+ * totals come from a window function; the response carries one compact array per measure.
+ */
+@Service
+public class AdherenceAnalyticsService {
+
+    private static final Set<String> BUCKETS = Set.of("day", "week", "month");
+
+    private static final String SERIES_SQL =
+            "SELECT b.patient_id, b.bucket, b.taken, b.missed, " +
+            "SUM(b.taken) OVER w AS cumulative_taken, SUM(b.missed) OVER w AS cumulative_missed " +
+            "FROM (SELECT mi.patient_id, date_trunc(?, mi.scheduled_time) AS bucket, " +
+            "COUNT(*) FILTER (WHERE mi.status = 'TAKEN') AS taken, " +
+            "COUNT(*) FILTER (WHERE mi.status = 'MISSED') AS missed " +
+            "FROM medication_intakes mi " +
+            "WHERE mi.patient_id = ANY(?) AND mi.scheduled_time >= ? AND mi.scheduled_time < ? " +
+            "AND mi.status IN ('TAKEN', 'MISSED') " +
+            "GROUP BY mi.patient_id, 2) b " +
+            "WINDOW w AS (PARTITION BY b.patient_id ORDER BY b.bucket) " +
+            "ORDER BY b.patient_id, b.bucket";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${observance.analytics.max-cohort-size:10000}")
+    private int maxCohortSize;
+
+    @Value("${observance.analytics.max-buckets:1000}")
+    private int maxBuckets;
+
+    public AdherenceSeriesDto getSeries(AdherenceQueryDto query) {
+        String bucket = query.getBucket() != null ? query.getBucket().toLowerCase() : "day";
+        if (!BUCKETS.contains(bucket)) {
+            throw new ValidationException("Bucket must be one of " + BUCKETS);
+        }
+        if (!query.getEnd().isAfter(query.getStart())) {
+            throw new ValidationException("End must be after start");
+        }
+        Long[] patientIds = query.getPatientIds().stream().distinct().toArray(Long[]::new);
+        if (patientIds.length > maxCohortSize) {
+            throw new ValidationException("Cohort is limited to " + maxCohortSize + " patients");
+        }
+
+        List<LocalDateTime> buckets = buckets(bucket, query.getStart(), query.getEnd());
+        Map<LocalDateTime, Integer> positions = new HashMap<>();
+        for (int i = 0; i < buckets.size(); i++) {
+            positions.put(buckets.get(i), i);
+        }
+
+        AdherenceSeriesDto.Series cohort = new AdherenceSeriesDto.Series(null, buckets.size());
+        Map<Long, AdherenceSeriesDto.Series> patients = new LinkedHashMap<>();
+
+        jdbcTemplate.query(SERIES_SQL, rs -> {
+            // A bucket the database truncated differently from buckets() has no slot; skip it rather than fail
+            Integer i = positions.get(rs.getObject("bucket", LocalDateTime.class));
+            if (i == null) {
+                return;
+            }
+            long taken = rs.getLong("taken");
+            long missed = rs.getLong("missed");
+            cohort.getTaken()[i] += taken;
+            cohort.getMissed()[i] += missed;
+
+            if (query.isIncludePatients()) {
+                long patientId = rs.getLong("patient_id");
+                AdherenceSeriesDto.Series series = patients.computeIfAbsent(patientId,
+                        id -> new AdherenceSeriesDto.Series(id, buckets.size()));
+                series.getTaken()[i] = taken;
+                series.getMissed()[i] = missed;
+                series.getCumulativeRate()[i] = AdherenceWindowDto.rate(rs.getLong("cumulative_taken"), rs.getLong("cumulative_missed"));
+            }
+        }, bucket, patientIds, Timestamp.valueOf(query.getStart()), Timestamp.valueOf(query.getEnd()));
+
+        fillRates(cohort, true);
+        for (AdherenceSeriesDto.Series series : patients.values()) {
+            fillRates(series, false);
+        }
+
+        AdherenceSeriesDto result = new AdherenceSeriesDto();
+        result.setBucket(bucket);
+        result.setBuckets(buckets);
+        result.setCohort(cohort);
+        result.setPatients(query.isIncludePatients() ? new ArrayList<>(patients.values()) : null);
+        return result;
+    }
+
+    // Per-bucket rates; cumulative rates carry forward over empty buckets
+    private static void fillRates(AdherenceSeriesDto.Series series, boolean computeCumulative) {
+        long cumulativeTaken = 0;
+        long cumulativeMissed = 0;
+        Double previous = null;
+        for (int i = 0; i < series.getTaken().length; i++) {
+            long taken = series.getTaken()[i];
+            long missed = series.getMissed()[i];
+            series.getRate()[i] = taken + missed == 0 ? null : AdherenceWindowDto.rate(taken, missed);
+
+            if (computeCumulative) {
+                cumulativeTaken += taken;
+                cumulativeMissed += missed;
+                series.getCumulativeRate()[i] = cumulativeTaken + cumulativeMissed == 0
+                        ? null : AdherenceWindowDto.rate(cumulativeTaken, cumulativeMissed);
+            } else if (series.getCumulativeRate()[i] == null) {
+                series.getCumulativeRate()[i] = previous;
+            }
+            previous = series.getCumulativeRate()[i];
+        }
+    }
+
+    // Bucket starts covering [start, end), matching Postgres date_trunc (weeks start on Monday)
+    private List<LocalDateTime> buckets(String bucket, LocalDateTime start, LocalDateTime end) {
+        LocalDateTime current = start.truncatedTo(ChronoUnit.DAYS);
+        if (bucket.equals("week")) {
+            current = current.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        } else if (bucket.equals("month")) {
+            current = current.withDayOfMonth(1);
+        }
+
+        List<LocalDateTime> buckets = new ArrayList<>();
+        while (current.isBefore(end)) {
+            if (buckets.size() == maxBuckets) {
+                throw new ValidationException("Period covers more than " + maxBuckets + " buckets, use a coarser bucket");
+            }
+            buckets.add(current);
+            current = switch (bucket) {
+                case "week" -> current.plusWeeks(1);
+                case "month" -> current.plusMonths(1);
+                default -> current.plusDays(1);
+            };
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,117 @@
+package com.nadym.observance.service;
+
+import com.nadym.observance.dto.AdherenceSummaryDto;
+import com.nadym.observance.dto.AdherenceWindowDto;
+import com.nadym.observance.entity.MedicationIntake;
+import com.nadym.observance.repository.AdherenceCounterRepository;
+import com.nadym.observance.repository.AdherenceTotalRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Incrementally maintained adherence counters. Every intake status change adds or removes
+ * its contribution to a per-patient, per-item, per-day row and to a per-patient total, in the
+ * same transaction as the change itself, so reading adherence never scans medication_intakes.
+ * A nightly job rebuilds the counters from the intakes to repair any drift; increments take a
+ * shared advisory lock and the rebuild an exclusive one, so the rebuild never overwrites an
+ * increment its snapshot did not see.
+ */
+@Component
+public class AdherenceCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(AdherenceCounters.class);
+
+    @Autowired
+    private AdherenceCounterRepository counterRepository;
+
+    @Autowired
+    private AdherenceTotalRepository totalRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // An intake taken later than this after its scheduled time also counts as late
+    @Value("${observance.adherence.late-after-minutes:60}")
+    private int lateAfterMinutes;
+
+    public void add(MedicationIntake intake) {
+        apply(intake.getPatientId(), intake.getPrescriptionItemId(), intake.getScheduledTime(),
+                intake.getStatus(), intake.getActualTime(), 1);
+    }
+
+    public void remove(Long patientId, Long prescriptionItemId, LocalDateTime scheduledTime,
+                       MedicationIntake.IntakeStatus status, LocalDateTime actualTime) {
+        apply(patientId, prescriptionItemId, scheduledTime, status, actualTime, -1);
+    }
+
+    public double getAdherenceRate(Long patientId) {
+        return totalRepository.findById(patientId)
+                .map(total -> AdherenceWindowDto.rate(total.getTakenCount(), total.getMissedCount()))
+                .orElse(0.0);
+    }
+
+    public AdherenceSummaryDto getRollingAdherence(Long patientId, Long prescriptionItemId) {
+        LocalDate today = LocalDate.now();
+        List<AdherenceCounterRepository.WindowCounts> counts = prescriptionItemId == null
+                ? counterRepository.findWindows(patientId, today)
+                : counterRepository.findWindowsForItem(patientId, prescriptionItemId, today);
+        List<AdherenceWindowDto> windows = counts.stream()
+                .map(c -> new AdherenceWindowDto(c.getDays(), c.getTaken(), c.getMissed(), c.getLate()))
+                .toList();
+        return new AdherenceSummaryDto(patientId, prescriptionItemId, windows);
+    }
+
+    // Counters start empty on a database that already holds intakes
+    @EventListener(ApplicationReadyEvent.class)
+    void initialize() {
+        if (totalRepository.count() == 0) {
+            reconcile();
+        }
+    }
+
+    @Scheduled(cron = "${observance.adherence.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (!counterRepository.tryReconciliationLock()) {
+                log.debug("Adherence reconciliation already running elsewhere");
+                return;
+            }
+            // Intake writes wait here until the rebuild commits
+            counterRepository.lockCountersExclusive();
+            int days = counterRepository.rebuildDaily(lateAfterMinutes) + counterRepository.deleteStaleDaily();
+            int patients = counterRepository.rebuildTotals() + counterRepository.deleteStaleTotals();
+            log.info("Reconciled adherence counters: {} daily rows and {} patient totals corrected", days, patients);
+        });
+    }
+
+    boolean isLate(MedicationIntake.IntakeStatus status, LocalDateTime scheduledTime, LocalDateTime actualTime) {
+        return status == MedicationIntake.IntakeStatus.TAKEN && actualTime != null && scheduledTime != null
+                && actualTime.isAfter(scheduledTime.plusMinutes(lateAfterMinutes));
+    }
+
+    private void apply(Long patientId, Long prescriptionItemId, LocalDateTime scheduledTime,
+                       MedicationIntake.IntakeStatus status, LocalDateTime actualTime, int sign) {
+        long taken = status == MedicationIntake.IntakeStatus.TAKEN ? sign : 0;
+        long missed = status == MedicationIntake.IntakeStatus.MISSED ? sign : 0;
+        if (taken == 0 && missed == 0) {
+            return;
+        }
+        long late = isLate(status, scheduledTime, actualTime) ? sign : 0;
+
+        counterRepository.lockCountersShared();
+        counterRepository.addDaily(patientId, prescriptionItemId, scheduledTime.toLocalDate(), taken, missed, late);
+        counterRepository.addTotal(patientId, taken, missed, late);
+    }
+}
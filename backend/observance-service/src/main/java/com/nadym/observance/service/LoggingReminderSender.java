@@ -0,0 +1,23 @@
+package com.nadym.observance.service;
+
+import com.nadym.observance.entity.Reminder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Default sender until a notification channel is wired in; declare another ReminderSender as @Primary to replace it
+@Component
+public class LoggingReminderSender implements ReminderSender {
+
+    private static final Logger log = LoggerFactory.getLogger(LoggingReminderSender.class);
+
+    @Override
+    public void send(List<Reminder> reminders) {
+        for (Reminder reminder : reminders) {
+            log.info("Reminder {} ({}) for patient {}: {}", reminder.getId(), reminder.getType(),
+                    reminder.getPatientId(), reminder.getMessage());
+        }
+    }
+}
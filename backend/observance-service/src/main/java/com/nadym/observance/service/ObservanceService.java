@@ -1,6 +1,7 @@
 package com.nadym.observance.service;
 
 import com.nadym.common.exception.ResourceNotFoundException;
+import com.nadym.observance.dto.AdherenceSummaryDto;
 import com.nadym.observance.dto.MedicationIntakeDto;
 import com.nadym.observance.entity.MedicationIntake;
 import com.nadym.observance.repository.MedicationIntakeRepository;
@@ -20,6 +21,9 @@ public class ObservanceService {
     @Autowired
     private MedicationIntakeRepository medicationIntakeRepository;
 
+    @Autowired
+    private AdherenceCounters adherenceCounters;
+
     public Page<MedicationIntake> getPatientIntakes(Long patientId, Pageable pageable) {
         return medicationIntakeRepository.findByPatientId(patientId, pageable);
     }
@@ -33,31 +37,41 @@ public class ObservanceService {
         MedicationIntake intake = convertToEntity(intakeDto);
         intake.setActualTime(LocalDateTime.now());
         intake.setStatus(MedicationIntake.IntakeStatus.TAKEN);
-        return medicationIntakeRepository.save(intake);
+        MedicationIntake saved = medicationIntakeRepository.save(intake);
+        adherenceCounters.add(saved);
+        return saved;
     }
 
     public MedicationIntake markAsMissed(Long intakeId) {
         MedicationIntake intake = getIntakeById(intakeId);
+        MedicationIntake.IntakeStatus previousStatus = intake.getStatus();
+        if (previousStatus == MedicationIntake.IntakeStatus.MISSED) {
+            return intake;
+        }
+
         intake.setStatus(MedicationIntake.IntakeStatus.MISSED);
-        return medicationIntakeRepository.save(intake);
+        MedicationIntake saved = medicationIntakeRepository.save(intake);
+        adherenceCounters.remove(saved.getPatientId(), saved.getPrescriptionItemId(), saved.getScheduledTime(),
+                previousStatus, saved.getActualTime());
+        adherenceCounters.add(saved);
+        return saved;
     }
 
     public List<MedicationIntake> getPatientIntakesForPeriod(Long patientId, LocalDateTime start, LocalDateTime end) {
         return medicationIntakeRepository.findByPatientIdAndScheduledTimeBetween(patientId, start, end);
     }
 
-    public List<MedicationIntake> getOverdueIntakes() {
+    public Page<MedicationIntake> getOverdueIntakes(Pageable pageable) {
         return medicationIntakeRepository.findOverdueIntakes(
-                MedicationIntake.IntakeStatus.SCHEDULED, LocalDateTime.now());
+                MedicationIntake.IntakeStatus.SCHEDULED, LocalDateTime.now(), pageable);
     }
 
     public double calculateAdherenceRate(Long patientId) {
-        long taken = medicationIntakeRepository.countTakenByPatientId(patientId);
-        long missed = medicationIntakeRepository.countMissedByPatientId(patientId);
-        long total = taken + missed;
-        
-        if (total == 0) return 0.0;
-        return (double) taken / total * 100;
+        return adherenceCounters.getAdherenceRate(patientId);
+    }
+
+    public AdherenceSummaryDto getRollingAdherence(Long patientId, Long prescriptionItemId) {
+        return adherenceCounters.getRollingAdherence(patientId, prescriptionItemId);
     }
 
     private MedicationIntake convertToEntity(MedicationIntakeDto dto) {
@@ -0,0 +1,155 @@
+package com.nadym.observance.service;
+
+import com.nadym.observance.dto.OverdueIntakeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Detects intakes as they become overdue instead of rescanning every SCHEDULED intake. Each
+ * tick reads only the intakes whose scheduled time passed since the previous tick, keyed on a
+ * (scheduled_time, id) high-water mark, and pushes them to subscribers. Intakes still
+ * SCHEDULED once the grace period is over are marked MISSED by a set-based UPDATE that also
+ * adds them to the adherence counters, in batches so no transaction holds many row locks.
+ */
+@Component
+public class OverdueIntakeMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueIntakeMonitor.class);
+
+    private static final String NEWLY_OVERDUE_SQL =
+            "SELECT mi.id, mi.patient_id, mi.prescription_item_id, mi.scheduled_time " +
+            "FROM medication_intakes mi " +
+            "WHERE mi.status = 'SCHEDULED' AND mi.scheduled_time <= ? " +
+            "AND (mi.scheduled_time, mi.id) > (?, ?) " +
+            "ORDER BY mi.scheduled_time, mi.id LIMIT ?";
+
+    // SKIP LOCKED lets replicas split the work; the counter upserts see only the rows this statement changed
+    private static final String MARK_MISSED_SQL =
+            "WITH missed AS (" +
+            "UPDATE medication_intakes mi SET status = 'MISSED', updated_at = ?, version = mi.version + 1 " +
+            "WHERE mi.id IN (SELECT s.id FROM medication_intakes s " +
+            "WHERE s.status = 'SCHEDULED' AND s.scheduled_time <= ? " +
+            "ORDER BY s.scheduled_time LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING mi.id, mi.patient_id, mi.prescription_item_id, mi.scheduled_time), " +
+            "daily AS (" +
+            "INSERT INTO adherence_daily_counters " +
+            "(patient_id, prescription_item_id, intake_day, taken_count, missed_count, late_count) " +
+            "SELECT m.patient_id, m.prescription_item_id, CAST(m.scheduled_time AS date), 0, COUNT(*), 0 " +
+            "FROM missed m GROUP BY m.patient_id, m.prescription_item_id, CAST(m.scheduled_time AS date) " +
+            "ON CONFLICT (patient_id, prescription_item_id, intake_day) DO UPDATE SET " +
+            "missed_count = adherence_daily_counters.missed_count + EXCLUDED.missed_count), " +
+            "totals AS (" +
+            "INSERT INTO adherence_totals (patient_id, taken_count, missed_count, late_count) " +
+            "SELECT m.patient_id, 0, COUNT(*), 0 FROM missed m GROUP BY m.patient_id " +
+            "ON CONFLICT (patient_id) DO UPDATE SET " +
+            "missed_count = adherence_totals.missed_count + EXCLUDED.missed_count) " +
+            "SELECT m.id, m.patient_id, m.prescription_item_id, m.scheduled_time FROM missed m " +
+            "ORDER BY m.scheduled_time";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OverdueIntakeSubscriptions subscriptions;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${observance.overdue.enabled:true}")
+    private boolean enabled;
+
+    @Value("${observance.overdue.grace-minutes:120}")
+    private long graceMinutes;
+
+    @Value("${observance.overdue.batch-size:1000}")
+    private int batchSize;
+
+    private LocalDateTime watermarkTime;
+    private long watermarkId;
+
+    private Counter overdue;
+    private Counter missed;
+
+    @PostConstruct
+    void init() {
+        // Intakes already overdue at startup are not announced again; the paged endpoint lists them
+        watermarkTime = LocalDateTime.now();
+        watermarkId = Long.MAX_VALUE;
+
+        overdue = Counter.builder("observance.intakes.overdue").register(meterRegistry);
+        missed = Counter.builder("observance.intakes.auto-missed").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${observance.overdue.tick-ms:5000}")
+    public synchronized void tick() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            detectOverdue(now);
+            markMissed(now.minusMinutes(graceMinutes));
+        } catch (Exception e) {
+            log.warn("Overdue intake detection failed: {}", e.getMessage());
+        }
+    }
+
+    private void detectOverdue(LocalDateTime now) {
+        if (!subscriptions.hasSubscribers()) {
+            // Nobody to tell, so skip the read and move the mark past everything due so far
+            watermarkTime = now;
+            watermarkId = Long.MAX_VALUE;
+            return;
+        }
+
+        List<OverdueIntakeEvent> events;
+        do {
+            events = jdbcTemplate.query(NEWLY_OVERDUE_SQL, mapper(OverdueIntakeEvent.Type.OVERDUE),
+                    Timestamp.valueOf(now), Timestamp.valueOf(watermarkTime), watermarkId, batchSize);
+            if (!events.isEmpty()) {
+                OverdueIntakeEvent last = events.get(events.size() - 1);
+                watermarkTime = last.getScheduledTime();
+                watermarkId = last.getIntakeId();
+                overdue.increment(events.size());
+                subscriptions.publish(events);
+            }
+        } while (events.size() == batchSize);
+
+        watermarkTime = now;
+        watermarkId = Long.MAX_VALUE;
+    }
+
+    private void markMissed(LocalDateTime cutoff) {
+        int total = 0;
+        List<OverdueIntakeEvent> batch;
+        do {
+            batch = jdbcTemplate.query(MARK_MISSED_SQL, mapper(OverdueIntakeEvent.Type.MISSED),
+                    Timestamp.valueOf(LocalDateTime.now()), Timestamp.valueOf(cutoff), batchSize);
+            total += batch.size();
+            subscriptions.publish(batch);
+        } while (batch.size() == batchSize);
+
+        if (total > 0) {
+            missed.increment(total);
+            log.info("Marked {} intakes MISSED after a {} minute grace period", total, graceMinutes);
+        }
+    }
+
+    private static RowMapper<OverdueIntakeEvent> mapper(OverdueIntakeEvent.Type type) {
+        return (rs, rowNum) -> new OverdueIntakeEvent(type, rs.getLong("id"), rs.getLong("patient_id"),
+                rs.getLong("prescription_item_id"), rs.getTimestamp("scheduled_time").toLocalDateTime());
+    }
+}
@@ -0,0 +1,93 @@
+package com.nadym.observance.service;
+
+import com.nadym.common.exception.ValidationException;
+import com.nadym.observance.dto.OverdueIntakeEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Server-Sent Event subscribers to overdue and missed intakes, optionally restricted to one
+ * patient. A subscriber whose connection fails is dropped on the next send.
+ */
+@Component
+public class OverdueIntakeSubscriptions {
+
+    private static final Logger log = LoggerFactory.getLogger(OverdueIntakeSubscriptions.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${observance.overdue.max-subscribers:200}")
+    private int maxSubscribers;
+
+    @Value("${observance.overdue.subscription-timeout-ms:1800000}")
+    private long timeoutMs;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("observance.overdue.subscribers", subscriptions, List::size).register(meterRegistry);
+    }
+
+    public SseEmitter subscribe(Long patientId) {
+        if (subscriptions.size() >= maxSubscribers) {
+            throw new ValidationException("Too many overdue intake subscribers, poll GET /api/observance/overdue instead");
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscription subscription = new Subscription(patientId, emitter);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(e -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+        return emitter;
+    }
+
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    public void publish(List<OverdueIntakeEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            try {
+                for (OverdueIntakeEvent event : events) {
+                    if (subscription.patientId == null || subscription.patientId.equals(event.getPatientId())) {
+                        subscription.emitter.send(SseEmitter.event()
+                                .name(event.getType().name().toLowerCase())
+                                .data(event, MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (Exception e) {
+                subscriptions.remove(subscription);
+                subscription.emitter.completeWithError(e);
+                log.debug("Overdue intake subscriber left: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static class Subscription {
+
+        private final Long patientId;
+        private final SseEmitter emitter;
+
+        Subscription(Long patientId, SseEmitter emitter) {
+            this.patientId = patientId;
+            this.emitter = emitter;
+        }
+    }
+}
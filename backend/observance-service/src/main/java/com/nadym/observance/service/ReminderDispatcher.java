@@ -0,0 +1,194 @@
+package com.nadym.observance.service;
+
+import com.nadym.observance.entity.Reminder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires PENDING reminders at their reminder time. A loader claims the reminders due within
+ * the next window, leasing them to this replica so no other replica loads them, and keeps
+ * them in a {@link ReminderWheel}. A dedicated ticker thread fires whatever is due every
+ * tick, hands each batch to the {@link ReminderSender} and marks it SENT with one UPDATE.
+ * A batch the sender rejects is released and picked up again by the next load.
+ */
+@Component
+public class ReminderDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ReminderDispatcher.class);
+
+    @Autowired
+    private ReminderService reminderService;
+
+    @Autowired
+    private ReminderSender reminderSender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${spring.application.name:observance-service}")
+    private String applicationName;
+
+    @Value("${observance.reminders.enabled:true}")
+    private boolean enabled;
+
+    @Value("${observance.reminders.window-seconds:60}")
+    private long windowSeconds;
+
+    // Must outlast the window plus a slow send, or another replica may load the same reminder
+    @Value("${observance.reminders.lease-seconds:180}")
+    private long leaseSeconds;
+
+    @Value("${observance.reminders.batch-size:500}")
+    private int batchSize;
+
+    @Value("${observance.reminders.max-loaded:50000}")
+    private int maxLoaded;
+
+    @Value("${observance.reminders.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${observance.reminders.expire-after-minutes:60}")
+    private long expireAfterMinutes;
+
+    private final ReminderWheel wheel = new ReminderWheel();
+
+    private String owner;
+
+    private ScheduledExecutorService ticker;
+
+    private Counter dispatched;
+    private Counter failed;
+    private Timer lag;
+
+    @PostConstruct
+    void init() {
+        owner = applicationName + "-" + UUID.randomUUID();
+
+        dispatched = Counter.builder("observance.reminders.dispatched").register(meterRegistry);
+        failed = Counter.builder("observance.reminders.failed").register(meterRegistry);
+        lag = Timer.builder("observance.reminders.lag").publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("observance.reminders.loaded", wheel, ReminderWheel::size).register(meterRegistry);
+
+        if (enabled) {
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "reminder-ticker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleAtFixedRate(this::fireDue, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (ticker == null) {
+            return;
+        }
+        ticker.shutdown();
+        try {
+            ticker.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Hand what was loaded but not fired back to the other replicas
+        wheel.drain();
+        try {
+            int released = reminderService.releaseAll(owner);
+            log.info("Released {} loaded reminders on shutdown", released);
+        } catch (Exception e) {
+            log.warn("Could not release reminder leases, they expire on their own: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${observance.reminders.load-interval-ms:10000}")
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            int expired = reminderService.expireOlderThan(now.minusMinutes(expireAfterMinutes));
+            if (expired > 0) {
+                log.info("Expired {} reminders more than {} minutes overdue", expired, expireAfterMinutes);
+            }
+
+            LocalDateTime horizon = now.plusSeconds(windowSeconds);
+            LocalDateTime leaseUntil = now.plusSeconds(leaseSeconds);
+            int loaded = 0;
+            while (wheel.size() < maxLoaded) {
+                int limit = Math.min(batchSize, maxLoaded - wheel.size());
+                List<Reminder> claimed = reminderService.claimDue(horizon, limit, owner, leaseUntil);
+                claimed.forEach(wheel::add);
+                loaded += claimed.size();
+                if (claimed.size() < limit) {
+                    break;
+                }
+            }
+            if (loaded > 0) {
+                log.debug("Loaded {} reminders due before {}", loaded, horizon);
+            }
+        } catch (Exception e) {
+            log.warn("Could not load due reminders: {}", e.getMessage());
+        }
+    }
+
+    private void fireDue() {
+        long nowSecond = System.currentTimeMillis() / 1000;
+        List<Reminder> due;
+        while (!(due = wheel.pollDue(nowSecond, batchSize)).isEmpty()) {
+            fire(due);
+        }
+    }
+
+    private void fire(List<Reminder> batch) {
+        List<Long> ids = batch.stream().map(Reminder::getId).toList();
+        try {
+            reminderSender.send(batch);
+        } catch (Exception e) {
+            failed.increment(batch.size());
+            log.warn("Sending {} reminders failed, releasing them for retry: {}", batch.size(), e.getMessage());
+            try {
+                reminderService.release(ids, owner);
+            } catch (Exception releaseError) {
+                log.warn("Could not release reminders, they are retried once the lease expires: {}", releaseError.getMessage());
+            }
+            return;
+        }
+
+        try {
+            int marked = reminderService.markSent(ids, owner);
+            if (marked < ids.size()) {
+                log.warn("{} of {} sent reminders were no longer leased to this replica", ids.size() - marked, ids.size());
+            }
+        } catch (Exception e) {
+            log.error("Sent {} reminders but could not mark them SENT: {}", ids.size(), e.getMessage());
+        }
+
+        long nowMillis = System.currentTimeMillis();
+        for (Reminder reminder : batch) {
+            long dueMillis = reminder.getReminderTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            lag.record(Duration.ofMillis(Math.max(0, nowMillis - dueMillis)));
+        }
+        dispatched.increment(batch.size());
+    }
+}
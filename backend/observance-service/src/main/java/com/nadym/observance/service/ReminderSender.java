@@ -0,0 +1,14 @@
+package com.nadym.observance.service;
+
+import com.nadym.observance.entity.Reminder;
+
+import java.util.List;
+
+/**
+ * Delivers due reminders to patients. The dispatcher hands over every reminder due in the same
+ * tick as one batch; throwing fails the whole batch, which is then retried on a later load.
+ */
+public interface ReminderSender {
+
+    void send(List<Reminder> reminders);
+}
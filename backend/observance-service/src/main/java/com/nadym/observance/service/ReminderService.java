@@ -0,0 +1,44 @@
+package com.nadym.observance.service;
+
+import com.nadym.observance.entity.Reminder;
+import com.nadym.observance.repository.ReminderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+@Transactional
+public class ReminderService {
+
+    @Autowired
+    private ReminderRepository reminderRepository;
+
+    // Locks skip rows another replica is claiming, and the lease keeps them out of its next load
+    public List<Reminder> claimDue(LocalDateTime horizon, int limit, String owner, LocalDateTime leaseUntil) {
+        List<Reminder> due = reminderRepository.lockDue(horizon, LocalDateTime.now(), limit);
+        if (!due.isEmpty()) {
+            reminderRepository.lease(due.stream().map(Reminder::getId).toList(), owner, leaseUntil);
+        }
+        return due;
+    }
+
+    public int markSent(Collection<Long> ids, String owner) {
+        return reminderRepository.markSent(ids, owner, LocalDateTime.now());
+    }
+
+    public int release(Collection<Long> ids, String owner) {
+        return reminderRepository.release(ids, owner);
+    }
+
+    public int releaseAll(String owner) {
+        return reminderRepository.releaseAll(owner);
+    }
+
+    public int expireOlderThan(LocalDateTime before) {
+        return reminderRepository.expirePending(before, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,59 @@
+package com.nadym.observance.service;
+
+import com.nadym.observance.entity.Reminder;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Loaded reminders indexed by the second they are due. Polling takes the earliest slots up to
+ * the current second, so firing costs nothing for reminders that are not yet due.
+ */
+class ReminderWheel {
+
+    private final TreeMap<Long, List<Reminder>> slots = new TreeMap<>();
+    private final Set<Long> ids = new HashSet<>();
+
+    synchronized boolean add(Reminder reminder) {
+        if (!ids.add(reminder.getId())) {
+            return false;
+        }
+        long second = reminder.getReminderTime().atZone(ZoneId.systemDefault()).toEpochSecond();
+        slots.computeIfAbsent(second, s -> new ArrayList<>()).add(reminder);
+        return true;
+    }
+
+    synchronized List<Reminder> pollDue(long nowSecond, int max) {
+        List<Reminder> due = new ArrayList<>();
+        Iterator<Map.Entry<Long, List<Reminder>>> iterator = slots.headMap(nowSecond, true).entrySet().iterator();
+        while (iterator.hasNext() && due.size() < max) {
+            List<Reminder> slot = iterator.next().getValue();
+            while (!slot.isEmpty() && due.size() < max) {
+                Reminder reminder = slot.remove(slot.size() - 1);
+                ids.remove(reminder.getId());
+                due.add(reminder);
+            }
+            if (slot.isEmpty()) {
+                iterator.remove();
+            }
+        }
+        return due;
+    }
+
+    synchronized List<Long> drain() {
+        List<Long> drained = new ArrayList<>(ids);
+        slots.clear();
+        ids.clear();
+        return drained;
+    }
+
+    synchronized int size() {
+        return ids.size();
+    }
+}
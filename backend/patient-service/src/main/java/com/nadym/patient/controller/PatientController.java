@@ -1,22 +1,44 @@
 package com.nadym.patient.controller;
 
+import com.nadym.common.dto.CursorPage;
+import com.nadym.common.exception.ValidationException;
+import com.nadym.patient.dto.PatientChartDto;
 import com.nadym.patient.dto.PatientDto;
+import com.nadym.patient.dto.PatientImportReport;
 import com.nadym.patient.entity.Patient;
+import com.nadym.patient.projection.PatientFieldSet;
+import com.nadym.patient.projection.PatientSuggestion;
+import com.nadym.patient.projection.PatientSummary;
+import com.nadym.patient.service.PatientExportService;
+import com.nadym.patient.service.PatientImportService;
 import com.nadym.patient.service.PatientService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
 @RestController
 @RequestMapping("/api/patients")
 @Tag(name = "Patient Management", description = "APIs for managing patient records")
@@ -25,45 +47,102 @@ public class PatientController {
     @Autowired
     private PatientService patientService;
 
+    @Autowired
+    private PatientImportService patientImportService;
+
+    @Autowired
+    private PatientExportService patientExportService;
+
     @GetMapping
     @Operation(summary = "Get all patients", description = "Retrieve a paginated list of all patients")
     @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE')")
-    public ResponseEntity<Page<Patient>> getAllPatients(
+    public ResponseEntity<Page<Map<String, Object>>> getAllPatients(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
             @Parameter(description = "Sort by field") @RequestParam(defaultValue = "lastName") String sortBy,
-            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "asc") String sortDir) {
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "asc") String sortDir,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,firstName,lastName") @RequestParam(required = false) String fields) {
         
+        PatientFieldSet fieldSet = PatientFieldSet.parse(fields);
         Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                    Sort.by(sortBy).descending() : 
                    Sort.by(sortBy).ascending();
         
         Pageable pageable = PageRequest.of(page, size, sort);
-        Page<Patient> patients = patientService.getAllPatients(pageable);
+        Page<PatientSummary> patients = patientService.getAllPatients(pageable);
         
-        return ResponseEntity.ok(patients);
+        return ResponseEntity.ok(patients.map(fieldSet::apply));
+    }
+
+    @GetMapping("/cursor")
+    @Operation(summary = "Get all patients (cursor)", description = "Keyset-paginated list ordered by last name, without total count")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE')")
+    public ResponseEntity<CursorPage<Map<String, Object>>> getPatientsByCursor(
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,firstName,lastName") @RequestParam(required = false) String fields) {
+        
+        PatientFieldSet fieldSet = PatientFieldSet.parse(fields);
+        return ResponseEntity.ok(select(patientService.getPatientsAfter(cursor, checkPageSize(size)), fieldSet));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Get patient by ID", description = "Retrieve a specific patient by their ID")
-    @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE') or (hasRole('PATIENT') and @patientService.isPatientOwner(#id, authentication.name))")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE') or (hasRole('PATIENT') and @patientService.isPatientOwner(#id, authentication))")
     public ResponseEntity<Patient> getPatientById(@PathVariable Long id) {
         Patient patient = patientService.getPatientById(id);
-        return ResponseEntity.ok(patient);
+        // The entity version lets clients tell a cached read from a newer write
+        return ResponseEntity.ok().eTag(String.valueOf(patient.getVersion())).body(patient);
+    }
+
+    @GetMapping("/{id}/chart")
+    @Operation(summary = "Get patient chart", description = "Patient record with upcoming appointments and active prescriptions, including their items")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE') or (hasRole('PATIENT') and @patientService.isPatientOwner(#id, authentication))")
+    public ResponseEntity<PatientChartDto> getPatientChart(@PathVariable Long id) {
+        return ResponseEntity.ok(patientService.getPatientChart(id));
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search patients", description = "Search patients by name or email")
+    @Operation(summary = "Search patients", description = "Accent-insensitive, typo-tolerant search by name or email, best matches first")
     @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE')")
-    public ResponseEntity<Page<Patient>> searchPatients(
+    public ResponseEntity<Page<Map<String, Object>>> searchPatients(
             @Parameter(description = "Search term") @RequestParam String q,
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
-            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size) {
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,firstName,lastName") @RequestParam(required = false) String fields) {
+        
+        PatientFieldSet fieldSet = PatientFieldSet.parse(fields);
+        // Results come back ranked by relevance, so no sort is applied here
+        Pageable pageable = PageRequest.of(page, size);
+        Page<PatientSummary> patients = patientService.searchPatients(q, pageable);
+        
+        return ResponseEntity.ok(patients.map(fieldSet::apply));
+    }
+
+    @GetMapping("/autocomplete")
+    @Operation(summary = "Autocomplete patient names", description = "Patients whose first or last name starts with the given prefix, ignoring accents")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE')")
+    public ResponseEntity<List<PatientSuggestion>> autocomplete(
+            @Parameter(description = "Name prefix") @RequestParam String q,
+            @Parameter(description = "Maximum number of suggestions") @RequestParam(defaultValue = "10") int limit) {
         
-        Pageable pageable = PageRequest.of(page, size, Sort.by("lastName").ascending());
-        Page<Patient> patients = patientService.searchPatients(q, pageable);
+        if (limit < 1 || limit > 50) {
+            throw new ValidationException("Limit must be between 1 and 50");
+        }
+        return ResponseEntity.ok(patientService.autocomplete(q, limit));
+    }
+
+    @GetMapping("/search/cursor")
+    @Operation(summary = "Search patients (cursor)", description = "Keyset-paginated search by name or email, without total count")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE')")
+    public ResponseEntity<CursorPage<Map<String, Object>>> searchPatientsByCursor(
+            @Parameter(description = "Search term") @RequestParam String q,
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Comma-separated fields to return, e.g. id,firstName,lastName") @RequestParam(required = false) String fields) {
         
-        return ResponseEntity.ok(patients);
+        PatientFieldSet fieldSet = PatientFieldSet.parse(fields);
+        return ResponseEntity.ok(select(patientService.searchPatientsAfter(q, cursor, checkPageSize(size)), fieldSet));
     }
 
     @PostMapping
@@ -74,6 +153,46 @@ public class PatientController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdPatient);
     }
 
+    @PostMapping(value = "/import", consumes = { "text/csv", "application/x-ndjson" })
+    @Operation(summary = "Bulk import patients", description = "Create patients from a CSV (with header row) or NDJSON upload; returns a per-row error report")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PatientImportReport> importPatients(HttpServletRequest request) throws IOException {
+        Charset charset = request.getCharacterEncoding() != null ? Charset.forName(request.getCharacterEncoding()) : StandardCharsets.UTF_8;
+        Reader reader = new InputStreamReader(request.getInputStream(), charset);
+        PatientImportReport report = request.getContentType().startsWith("text/csv")
+                ? patientImportService.importCsv(reader)
+                : patientImportService.importNdjson(reader);
+        return ResponseEntity.ok(report);
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Export all patients", description = "Stream every patient record as CSV or NDJSON, optionally gzipped")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportPatients(
+            @Parameter(description = "csv or ndjson") @RequestParam(defaultValue = "csv") String format,
+            @Parameter(description = "Compress the export with gzip") @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        
+        PatientExportService.Format exportFormat;
+        try {
+            exportFormat = PatientExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Unsupported export format: " + format);
+        }
+
+        String fileName = "patients." + exportFormat.name().toLowerCase() + (gzip ? ".gz" : "");
+        response.setContentType(gzip ? "application/gzip"
+                : exportFormat == PatientExportService.Format.CSV ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+
+        OutputStream out = gzip ? new GZIPOutputStream(response.getOutputStream(), 8192) : response.getOutputStream();
+        patientExportService.export(exportFormat, out);
+        if (out instanceof GZIPOutputStream) {
+            ((GZIPOutputStream) out).finish();
+        }
+        out.flush();
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update patient", description = "Update an existing patient record")
     @PreAuthorize("hasRole('DOCTOR') or hasRole('NURSE')")
@@ -97,4 +216,16 @@ public class PatientController {
         long count = patientService.getTotalPatientsCount();
         return ResponseEntity.ok(count);
     }
-}
\ No newline at end of file
+
+    private CursorPage<Map<String, Object>> select(CursorPage<PatientSummary> page, PatientFieldSet fieldSet) {
+        List<Map<String, Object>> content = page.getContent().stream().map(fieldSet::apply).toList();
+        return new CursorPage<>(content, page.getSize(), page.getNextCursor());
+    }
+
+    private int checkPageSize(int size) {
+        if (size < 1 || size > 100) {
+            throw new ValidationException("Page size must be between 1 and 100");
+        }
+        return size;
+    }
+}
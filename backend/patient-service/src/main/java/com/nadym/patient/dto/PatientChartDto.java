@@ -0,0 +1,33 @@
+package com.nadym.patient.dto;
+
+import com.nadym.patient.entity.Appointment;
+import com.nadym.patient.entity.Patient;
+import com.nadym.patient.entity.Prescription;
+
+import java.util.List;
+
+public class PatientChartDto {
+
+    private Patient patient;
+    private List<Appointment> upcomingAppointments;
+    private List<Prescription> activePrescriptions;
+
+    // Constructors
+    public PatientChartDto() {}
+
+    public PatientChartDto(Patient patient, List<Appointment> upcomingAppointments, List<Prescription> activePrescriptions) {
+        this.patient = patient;
+        this.upcomingAppointments = upcomingAppointments;
+        this.activePrescriptions = activePrescriptions;
+    }
+
+    // Getters and Setters
+    public Patient getPatient() { return patient; }
+    public void setPatient(Patient patient) { this.patient = patient; }
+
+    public List<Appointment> getUpcomingAppointments() { return upcomingAppointments; }
+    public void setUpcomingAppointments(List<Appointment> upcomingAppointments) { this.upcomingAppointments = upcomingAppointments; }
+
+    public List<Prescription> getActivePrescriptions() { return activePrescriptions; }
+    public void setActivePrescriptions(List<Prescription> activePrescriptions) { this.activePrescriptions = activePrescriptions; }
+}
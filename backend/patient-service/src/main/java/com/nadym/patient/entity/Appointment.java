@@ -1,5 +1,6 @@
 package com.nadym.patient.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.nadym.common.entity.BaseEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
@@ -7,9 +8,12 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+        @Index(name = "idx_appointments_patient_date", columnList = "patient_id, appointment_date")
+})
 public class Appointment extends BaseEntity {
 
+    @JsonIgnore
     @NotNull(message = "Patient is required")
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id", nullable = false)
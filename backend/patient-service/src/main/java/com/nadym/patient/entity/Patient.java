@@ -1,5 +1,6 @@
 package com.nadym.patient.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.nadym.common.entity.BaseEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
@@ -10,7 +11,9 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(name = "patients")
+@Table(name = "patients", indexes = {
+        @Index(name = "idx_patients_last_name_id", columnList = "last_name, id")
+})
 public class Patient extends BaseEntity {
 
     @NotBlank(message = "First name is required")
@@ -63,9 +66,12 @@ public class Patient extends BaseEntity {
     @Column(name = "current_medications", columnDefinition = "TEXT")
     private String currentMedications;
 
+    // Not part of the patient record: serialising them would hit the lazy collections
+    @JsonIgnore
     @OneToMany(mappedBy = "patient", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Appointment> appointments;
 
+    @JsonIgnore
     @OneToMany(mappedBy = "patient", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Prescription> prescriptions;
 
@@ -1,5 +1,6 @@
 package com.nadym.patient.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.nadym.common.entity.BaseEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -9,9 +10,12 @@ import java.time.LocalDate;
 import java.util.List;
 
 @Entity
-@Table(name = "prescriptions")
+@Table(name = "prescriptions", indexes = {
+        @Index(name = "idx_prescriptions_patient_status", columnList = "patient_id, status")
+})
 public class Prescription extends BaseEntity {
 
+    @JsonIgnore
     @NotNull(message = "Patient is required")
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id", nullable = false)
@@ -1,5 +1,6 @@
 package com.nadym.patient.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.nadym.common.entity.BaseEntity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
@@ -10,6 +11,7 @@ import jakarta.validation.constraints.Positive;
 @Table(name = "prescription_items")
 public class PrescriptionItem extends BaseEntity {
 
+    @JsonIgnore
     @NotNull(message = "Prescription is required")
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "prescription_id", nullable = false)
@@ -0,0 +1,64 @@
+package com.nadym.patient.projection;
+
+import com.nadym.common.exception.ValidationException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Sparse fieldset requested with {@code fields=id,lastName,...}. Fields are rendered in the
+ * order given; without a {@code fields} parameter every summary field is returned.
+ */
+public final class PatientFieldSet {
+
+    private static final Map<String, Function<PatientSummary, Object>> FIELDS = new LinkedHashMap<>();
+
+    static {
+        FIELDS.put("id", PatientSummary::getId);
+        FIELDS.put("firstName", PatientSummary::getFirstName);
+        FIELDS.put("lastName", PatientSummary::getLastName);
+        FIELDS.put("email", PatientSummary::getEmail);
+        FIELDS.put("phone", PatientSummary::getPhone);
+        FIELDS.put("dateOfBirth", PatientSummary::getDateOfBirth);
+        FIELDS.put("gender", PatientSummary::getGender);
+        FIELDS.put("city", PatientSummary::getCity);
+    }
+
+    private static final PatientFieldSet ALL = new PatientFieldSet(new ArrayList<>(FIELDS.keySet()));
+
+    private final List<String> names;
+
+    private PatientFieldSet(List<String> names) {
+        this.names = names;
+    }
+
+    public static PatientFieldSet parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+
+        List<String> names = new ArrayList<>();
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty() || names.contains(trimmed)) {
+                continue;
+            }
+            if (!FIELDS.containsKey(trimmed)) {
+                throw new ValidationException("Unknown patient field '" + trimmed + "', expected one of " + FIELDS.keySet());
+            }
+            names.add(trimmed);
+        }
+        return names.isEmpty() ? ALL : new PatientFieldSet(names);
+    }
+
+    public Map<String, Object> apply(PatientSummary patient) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String name : names) {
+            row.put(name, FIELDS.get(name).apply(patient));
+        }
+        return row;
+    }
+}
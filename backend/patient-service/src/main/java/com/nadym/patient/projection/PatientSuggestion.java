@@ -0,0 +1,14 @@
+package com.nadym.patient.projection;
+
+import java.time.LocalDate;
+
+public interface PatientSuggestion {
+
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    LocalDate getDateOfBirth();
+}
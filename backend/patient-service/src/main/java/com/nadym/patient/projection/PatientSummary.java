@@ -0,0 +1,28 @@
+package com.nadym.patient.projection;
+
+import com.nadym.patient.entity.Patient;
+
+import java.time.LocalDate;
+
+/**
+ * Columns shown in patient lists and search results. The TEXT medical columns and the
+ * appointment and prescription associations are left out; they load only with the full record.
+ */
+public interface PatientSummary {
+
+    Long getId();
+
+    String getFirstName();
+
+    String getLastName();
+
+    String getEmail();
+
+    String getPhone();
+
+    LocalDate getDateOfBirth();
+
+    Patient.Gender getGender();
+
+    String getCity();
+}
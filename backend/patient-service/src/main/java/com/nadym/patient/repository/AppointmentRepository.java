@@ -0,0 +1,22 @@
+package com.nadym.patient.repository;
+
+import com.nadym.patient.entity.Appointment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+
+    @Query("SELECT a FROM Appointment a WHERE a.patient.id = :patientId " +
+           "AND a.appointmentDate >= :from AND a.status IN :statuses " +
+           "ORDER BY a.appointmentDate")
+    List<Appointment> findUpcoming(@Param("patientId") Long patientId,
+                                   @Param("from") LocalDateTime from,
+                                   @Param("statuses") Collection<Appointment.AppointmentStatus> statuses);
+}
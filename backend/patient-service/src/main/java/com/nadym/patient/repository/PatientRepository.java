@@ -1,25 +1,87 @@
 package com.nadym.patient.repository;
 
 import com.nadym.patient.entity.Patient;
+import com.nadym.patient.projection.PatientSuggestion;
+import com.nadym.patient.projection.PatientSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface PatientRepository extends JpaRepository<Patient, Long> {
 
+    // Aliases are quoted so Postgres keeps the camel case the PatientSummary getters expect
+    String SUMMARY_COLUMNS = "p.id AS id, p.first_name AS \"firstName\", p.last_name AS \"lastName\", " +
+                             "p.email AS email, p.phone AS phone, p.date_of_birth AS \"dateOfBirth\", " +
+                             "p.gender AS gender, p.city AS city";
+
+    // Accent- and case-folded "first last email", exactly as indexed by PatientSearchMigration
+    String SEARCH_TEXT = "nadym_unaccent(first_name || ' ' || last_name || ' ' || coalesce(email, ''))";
+
+    // :pattern is the search term with LIKE wildcards escaped
+    String SEARCH_MATCHES = "(" + SEARCH_TEXT + " LIKE CONCAT('%', nadym_unaccent(:pattern), '%') " +
+                            "OR nadym_unaccent(:searchTerm) <% " + SEARCH_TEXT + ")";
+
     Optional<Patient> findByEmail(String email);
 
-    @Query("SELECT p FROM Patient p WHERE " +
-           "LOWER(p.firstName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(p.lastName) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
-           "LOWER(p.email) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
-    Page<Patient> findBySearchTerm(@Param("searchTerm") String searchTerm, Pageable pageable);
+    boolean existsByEmail(String email);
+
+    @Query("SELECT p.email FROM Patient p WHERE p.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    Page<PatientSummary> findAllBy(Pageable pageable);
+
+    // Both filters are served by the trigram index from PatientSearchMigration
+    @Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM patients p WHERE " + SEARCH_MATCHES + " " +
+                   "ORDER BY word_similarity(nadym_unaccent(:searchTerm), " + SEARCH_TEXT + ") DESC, p.last_name, p.id",
+           countQuery = "SELECT COUNT(*) FROM patients p WHERE " + SEARCH_MATCHES,
+           nativeQuery = true)
+    Page<PatientSummary> findBySearchTerm(@Param("searchTerm") String searchTerm, @Param("pattern") String pattern,
+                                          Pageable pageable);
+
+    @Query(value = "SELECT p.id AS id, p.first_name AS \"firstName\", p.last_name AS \"lastName\", " +
+                   "p.date_of_birth AS \"dateOfBirth\" FROM patients p " +
+                   "WHERE nadym_unaccent(p.last_name) LIKE CONCAT(nadym_unaccent(:prefix), '%') " +
+                   "OR nadym_unaccent(p.first_name) LIKE CONCAT(nadym_unaccent(:prefix), '%') " +
+                   "ORDER BY p.last_name, p.first_name, p.id LIMIT :limit",
+           nativeQuery = true)
+    List<PatientSuggestion> findByNamePrefix(@Param("prefix") String prefix, @Param("limit") int limit);
+
+    // Keyset pages: a row-value comparison on (last_name, id) seeks straight into the index
+    @Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM patients p " +
+                   "WHERE (p.last_name, p.id) > (:lastName, :id) " +
+                   "ORDER BY p.last_name, p.id LIMIT :limit",
+           nativeQuery = true)
+    List<PatientSummary> findPageAfter(@Param("lastName") String lastName, @Param("id") Long id, @Param("limit") int limit);
+
+    @Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM patients p " +
+                   "WHERE (p.last_name, p.id) > (:lastName, :id) " +
+                   "AND " + SEARCH_MATCHES + " " +
+                   "ORDER BY p.last_name, p.id LIMIT :limit",
+           nativeQuery = true)
+    List<PatientSummary> findBySearchTermAfter(@Param("searchTerm") String searchTerm,
+                                               @Param("pattern") String pattern,
+                                               @Param("lastName") String lastName,
+                                               @Param("id") Long id,
+                                               @Param("limit") int limit);
+
+    // Read through a server-side cursor; callers must consume it inside a transaction
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Patient> streamAllByOrderByIdAsc();
 
     @Query("SELECT COUNT(p) FROM Patient p")
     long countAllPatients();
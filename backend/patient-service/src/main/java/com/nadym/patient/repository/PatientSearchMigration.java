@@ -0,0 +1,124 @@
+package com.nadym.patient.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates what patient search needs once per database: the nadym_unaccent() function and the
+ * trigram and prefix indexes over it. Each step checks the catalog first, so once everything
+ * exists a startup costs a few catalog reads. Indexes are built CONCURRENTLY, without blocking
+ * writes to patients, and replicas starting together take turns on an advisory lock.
+ *
+ * The pg_trgm and unaccent extensions need a superuser and must be installed by the DBA; until
+ * they are, this logs an error and search queries fail while the rest of the service works.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class PatientSearchMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientSearchMigration.class);
+
+    private static final List<String> EXTENSIONS = List.of("pg_trgm", "unaccent");
+
+    // unaccent() is only STABLE; pinning the dictionary makes it usable in indexes
+    private static final String CREATE_FUNCTION = "CREATE FUNCTION nadym_unaccent(text) RETURNS text " +
+            "LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT " +
+            "AS $$ SELECT public.unaccent('public.unaccent'::regdictionary, lower($1)) $$";
+
+    private static final Map<String, String> INDEXES = new LinkedHashMap<>();
+
+    static {
+        // Serves substring (LIKE '%term%') and fuzzy (<%) matching on PatientRepository.SEARCH_TEXT
+        INDEXES.put("idx_patients_search_trgm",
+                "ON patients USING gin ((" + PatientRepository.SEARCH_TEXT + ") gin_trgm_ops)");
+        // Serve prefix autocomplete (LIKE 'term%') on either name
+        INDEXES.put("idx_patients_last_name_prefix", "ON patients (nadym_unaccent(last_name) text_pattern_ops)");
+        INDEXES.put("idx_patients_first_name_prefix", "ON patients (nadym_unaccent(first_name) text_pattern_ops)");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${patient.search.migrate-on-startup:true}")
+    private boolean enabled;
+
+    @PostConstruct
+    void migrate() {
+        if (!enabled) {
+            return;
+        }
+        // One connection throughout: the advisory lock is held by the session, and CONCURRENTLY needs autocommit
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            connection.setAutoCommit(true);
+            for (String extension : EXTENSIONS) {
+                if (!exists(connection, "SELECT 1 FROM pg_extension WHERE extname = ?", extension)) {
+                    log.error("Extension {} is not installed; patient search is unavailable until a superuser runs " +
+                              "CREATE EXTENSION {}", extension, extension);
+                    return null;
+                }
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT pg_advisory_lock(hashtext('patient-search-migration'))");
+                try {
+                    migrate(connection, statement);
+                } finally {
+                    statement.execute("SELECT pg_advisory_unlock(hashtext('patient-search-migration'))");
+                }
+            }
+            return null;
+        });
+    }
+
+    private void migrate(Connection connection, Statement statement) throws SQLException {
+        if (!exists(connection, "SELECT 1 FROM pg_proc WHERE oid = to_regprocedure(?)", "nadym_unaccent(text)")) {
+            statement.execute(CREATE_FUNCTION);
+            log.info("Created function nadym_unaccent(text)");
+        }
+
+        // Left behind by the generated column search used to be kept in; dropping it does not rewrite the table
+        if (exists(connection, "SELECT 1 FROM information_schema.columns WHERE table_name = 'patients' " +
+                               "AND column_name = ?", "search_text")) {
+            statement.execute("ALTER TABLE patients DROP COLUMN search_text");
+            log.info("Dropped column patients.search_text");
+        }
+
+        for (Map.Entry<String, String> index : INDEXES.entrySet()) {
+            // A concurrent build that was interrupted leaves an invalid index behind, which is rebuilt
+            if (exists(connection, "SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                                   "WHERE c.relname = ? AND NOT i.indisvalid", index.getKey())) {
+                statement.execute("DROP INDEX CONCURRENTLY " + index.getKey());
+            }
+            if (!exists(connection, "SELECT 1 FROM pg_class WHERE relname = ? AND relkind = 'i'", index.getKey())) {
+                long start = System.nanoTime();
+                statement.execute("CREATE INDEX CONCURRENTLY " + index.getKey() + " " + index.getValue());
+                log.info("Built index {} in {} ms", index.getKey(), (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+    }
+
+    private static boolean exists(Connection connection, String sql, String parameter) throws SQLException {
+        try (PreparedStatement query = connection.prepareStatement(sql)) {
+            query.setString(1, parameter);
+            try (ResultSet rows = query.executeQuery()) {
+                return rows.next();
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.nadym.patient.repository;
+
+import com.nadym.patient.entity.Prescription;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PrescriptionRepository extends JpaRepository<Prescription, Long> {
+
+    // Items are fetched in the same query instead of one query per prescription
+    @EntityGraph(attributePaths = "items")
+    @Query("SELECT p FROM Prescription p WHERE p.patient.id = :patientId " +
+           "AND p.status = :status ORDER BY p.prescriptionDate DESC, p.id")
+    List<Prescription> findWithItemsByPatientIdAndStatus(@Param("patientId") Long patientId,
+                                                         @Param("status") Prescription.PrescriptionStatus status);
+}
@@ -0,0 +1,182 @@
+package com.nadym.patient.service;
+
+import com.nadym.patient.entity.Patient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-process cache of patients by id, with a secondary index by email. Entries expire
+ * after a TTL and the least recently used ones are evicted past the size limit.
+ *
+ * Writes leave a floor on the entity version: a read that raced with an update and loaded the
+ * older row cannot put it back, so the cache never serves a version older than the last write
+ * it was told about. Cached patients are detached and shared, so callers must not modify them.
+ */
+@Component
+class PatientCache {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${patient.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${patient.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${patient.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Map<Long, Entry> entries;
+    private Map<String, Long> idsByEmail;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    void init() {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > maxEntries) {
+                    unindex(eldest.getValue());
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        idsByEmail = new HashMap<>();
+
+        hits = Counter.builder("patient.cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("patient.cache.requests").tag("result", "miss").register(meterRegistry);
+        evictions = Counter.builder("patient.cache.evictions").register(meterRegistry);
+        Gauge.builder("patient.cache.size", this, PatientCache::size).register(meterRegistry);
+        Gauge.builder("patient.cache.hit.ratio", this, PatientCache::hitRatio).register(meterRegistry);
+    }
+
+    Optional<Patient> get(Long id) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            return record(live(entries.get(id)));
+        }
+    }
+
+    Optional<Patient> getByEmail(String email) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            Long id = idsByEmail.get(email);
+            return record(id != null ? live(entries.get(id)) : null);
+        }
+    }
+
+    void put(Patient patient) {
+        if (!enabled || patient.getId() == null) {
+            return;
+        }
+        long version = patient.getVersion() != null ? patient.getVersion() : 0L;
+        synchronized (this) {
+            Entry current = entries.get(patient.getId());
+            if (current != null && current.version > version && !current.isExpired()) {
+                // Loaded before a write we have already seen
+                return;
+            }
+            if (current != null) {
+                unindex(current);
+            }
+            entries.put(patient.getId(), new Entry(patient, version, expiry()));
+            if (patient.getEmail() != null) {
+                idsByEmail.put(patient.getEmail(), patient.getId());
+            }
+        }
+    }
+
+    /**
+     * Drops the cached patient after a write. {@code minVersion} is the version the write
+     * produced; older rows are refused until the floor expires. Pass {@link Long#MAX_VALUE}
+     * for a delete.
+     */
+    void invalidate(Long id, long minVersion) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            Entry current = entries.remove(id);
+            if (current != null) {
+                unindex(current);
+            }
+            if (minVersion > 0) {
+                entries.put(id, new Entry(null, minVersion, expiry()));
+            }
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private Patient live(Entry entry) {
+        if (entry == null || entry.patient == null || entry.isExpired()) {
+            return null;
+        }
+        return entry.patient;
+    }
+
+    private Optional<Patient> record(Patient patient) {
+        if (patient == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(patient);
+    }
+
+    private void unindex(Entry entry) {
+        if (entry.patient != null && entry.patient.getEmail() != null) {
+            idsByEmail.remove(entry.patient.getEmail(), entry.patient.getId());
+        }
+    }
+
+    private long expiry() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    // A null patient marks the version floor left behind by a write
+    private static class Entry {
+
+        private final Patient patient;
+        private final long version;
+        private final long expiresAt;
+
+        Entry(Patient patient, long version, long expiresAt) {
+            this.patient = patient;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.nadym.patient.service;
+
+import com.nadym.common.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the (lastName, id) ordering of patients, exchanged with clients as an opaque
+ * URL-safe token.
+ */
+final class PatientCursor {
+
+    // Sorts before every real row: last names are never blank and ids start at 1
+    static final PatientCursor START = new PatientCursor("", 0L);
+
+    private final String lastName;
+    private final Long id;
+
+    PatientCursor(String lastName, Long id) {
+        this.lastName = lastName;
+        this.id = id;
+    }
+
+    String getLastName() { return lastName; }
+
+    Long getId() { return id; }
+
+    String encode() {
+        String raw = id + ":" + lastName;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static PatientCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return START;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new PatientCursor(raw.substring(separator + 1), Long.parseLong(raw.substring(0, separator)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Invalid pagination cursor");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.nadym.patient.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nadym.patient.entity.Patient;
+import com.nadym.patient.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes every patient to an output stream as CSV or NDJSON. Rows come from a server-side
+ * cursor and are detached once written, so memory use does not grow with the table. The
+ * export runs in one repeatable-read transaction and therefore reflects a single snapshot.
+ */
+@Service
+public class PatientExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientExportService.class);
+
+    private static final String[] CSV_HEADER = { "id", "firstName", "lastName", "email", "phone", "dateOfBirth",
+            "gender", "address", "city", "postalCode", "country", "emergencyContactName", "emergencyContactPhone",
+            "medicalHistory", "allergies", "currentMedications", "createdAt", "updatedAt" };
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public long export(Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == Format.CSV) {
+            writeCsvRow(writer, CSV_HEADER);
+        }
+
+        long count = 0;
+        try (Stream<Patient> patients = patientRepository.streamAllByOrderByIdAsc()) {
+            Iterator<Patient> iterator = patients.iterator();
+            while (iterator.hasNext()) {
+                Patient patient = iterator.next();
+                if (format == Format.CSV) {
+                    writeCsvRow(writer, csvValues(patient));
+                } else {
+                    writer.write(objectMapper.writeValueAsString(patient));
+                    writer.write('\n');
+                }
+                entityManager.detach(patient);
+                count++;
+            }
+        }
+        writer.flush();
+
+        log.info("Exported {} patients as {}", count, format);
+        return count;
+    }
+
+    private static String[] csvValues(Patient patient) {
+        return new String[] {
+                String.valueOf(patient.getId()), patient.getFirstName(), patient.getLastName(), patient.getEmail(),
+                patient.getPhone(), toString(patient.getDateOfBirth()), toString(patient.getGender()),
+                patient.getAddress(), patient.getCity(), patient.getPostalCode(), patient.getCountry(),
+                patient.getEmergencyContactName(), patient.getEmergencyContactPhone(), patient.getMedicalHistory(),
+                patient.getAllergies(), patient.getCurrentMedications(), toString(patient.getCreatedAt()),
+                toString(patient.getUpdatedAt())
+        };
+    }
+
+    private static void writeCsvRow(Writer writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                writer.write('"');
+                writer.write(value.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(value);
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static String toString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
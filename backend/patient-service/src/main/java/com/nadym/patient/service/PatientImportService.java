@@ -0,0 +1,207 @@
+package com.nadym.patient.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nadym.patient.dto.PatientDto;
+import com.nadym.patient.dto.PatientImportReport;
+import com.nadym.patient.entity.Patient;
+import com.nadym.patient.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk patient creation from a CSV or NDJSON upload. Rows are parsed as they arrive and
+ * written in chunks: one set-based query finds the emails already registered, then the
+ * remaining rows go in as a single JDBC batch. Each chunk commits on its own, so a failed
+ * chunk is reported without undoing the ones before it.
+ */
+@Service
+public class PatientImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(PatientImportService.class);
+
+    private static final String INSERT_SQL = "INSERT INTO patients (id, first_name, last_name, email, phone, date_of_birth, " +
+            "gender, address, city, postal_code, country, emergency_contact_name, emergency_contact_phone, " +
+            "medical_history, allergies, current_medications, created_at, updated_at, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${patient.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${patient.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    // A quoted CSV field can span lines; this bounds how much of the upload one record may hold
+    @Value("${patient.import.max-record-chars:65536}")
+    private int maxRecordChars;
+
+    public PatientImportReport importCsv(Reader reader) throws IOException {
+        return importRows(PatientRowReader.csv(reader, maxRecordChars));
+    }
+
+    public PatientImportReport importNdjson(Reader reader) throws IOException {
+        return importRows(PatientRowReader.ndjson(reader, objectMapper, maxRecordChars));
+    }
+
+    private PatientImportReport importRows(PatientRowReader rows) throws IOException {
+        PatientImportReport report = new PatientImportReport();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        // Emails seen earlier in the upload, to reject duplicates inside the file itself
+        Set<String> seenEmails = new HashSet<>();
+        List<PatientRowReader.Row> chunk = new ArrayList<>(batchSize);
+
+        PatientRowReader.Row row;
+        while ((row = rows.next()) != null) {
+            report.setReceived(report.getReceived() + 1);
+            String error = row.error != null ? row.error : validate(row.patient);
+            if (error == null && row.patient.getEmail() != null && !seenEmails.add(row.patient.getEmail())) {
+                error = "Duplicate email in upload";
+            }
+            if (error != null) {
+                reject(report, row, error);
+                continue;
+            }
+
+            chunk.add(row);
+            if (chunk.size() == batchSize) {
+                writeChunk(chunk, report, transaction);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, report, transaction);
+        }
+
+        log.info("Patient import finished: {} received, {} imported, {} failed",
+                report.getReceived(), report.getImported(), report.getFailed());
+        return report;
+    }
+
+    private void writeChunk(List<PatientRowReader.Row> chunk, PatientImportReport report, TransactionTemplate transaction) {
+        Set<String> emails = chunk.stream()
+                .map(row -> row.patient.getEmail())
+                .filter(email -> email != null)
+                .collect(Collectors.toSet());
+        Set<String> existing = emails.isEmpty() ? Set.of() : new HashSet<>(patientRepository.findExistingEmails(emails));
+
+        List<PatientRowReader.Row> inserts = new ArrayList<>(chunk.size());
+        for (PatientRowReader.Row row : chunk) {
+            if (row.patient.getEmail() != null && existing.contains(row.patient.getEmail())) {
+                reject(report, row, "Patient with email " + row.patient.getEmail() + " already exists");
+            } else {
+                inserts.add(row);
+            }
+        }
+        if (inserts.isEmpty()) {
+            return;
+        }
+
+        try {
+            transaction.executeWithoutResult(status -> insert(inserts));
+            report.setImported(report.getImported() + inserts.size());
+        } catch (DataAccessException e) {
+            // Most likely a concurrent insert of the same email; the whole chunk was rolled back
+            log.warn("Patient import chunk of {} rows rejected: {}", inserts.size(), e.getMostSpecificCause().getMessage());
+            for (PatientRowReader.Row row : inserts) {
+                reject(report, row, "Batch rejected by the database: " + e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+
+    private void insert(List<PatientRowReader.Row> rows) {
+        // Ids come from the same pooled sequence blocks Hibernate uses for Patient
+        SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+        IdentifierGenerator generator = (IdentifierGenerator) session.getFactory().getMappingMetamodel()
+                .getEntityDescriptor(Patient.class).getGenerator();
+        Map<PatientRowReader.Row, Long> ids = new IdentityHashMap<>(rows.size());
+        for (PatientRowReader.Row row : rows) {
+            ids.put(row, (Long) generator.generate(session, null));
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (statement, row) -> {
+            PatientDto patient = row.patient;
+            statement.setLong(1, ids.get(row));
+            statement.setString(2, patient.getFirstName());
+            statement.setString(3, patient.getLastName());
+            statement.setString(4, patient.getEmail());
+            statement.setString(5, patient.getPhone());
+            statement.setDate(6, Date.valueOf(patient.getDateOfBirth()));
+            statement.setString(7, patient.getGender() != null ? patient.getGender().name() : null);
+            statement.setString(8, patient.getAddress());
+            statement.setString(9, patient.getCity());
+            statement.setString(10, patient.getPostalCode());
+            statement.setString(11, patient.getCountry());
+            statement.setString(12, patient.getEmergencyContactName());
+            statement.setString(13, patient.getEmergencyContactPhone());
+            statement.setString(14, patient.getMedicalHistory());
+            statement.setString(15, patient.getAllergies());
+            statement.setString(16, patient.getCurrentMedications());
+            statement.setTimestamp(17, now);
+            statement.setTimestamp(18, now);
+        });
+    }
+
+    private String validate(PatientDto patient) {
+        Set<ConstraintViolation<PatientDto>> violations = validator.validate(patient);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    private void reject(PatientImportReport report, PatientRowReader.Row row, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxReportedErrors) {
+            String email = row.patient != null ? row.patient.getEmail() : null;
+            report.getErrors().add(new PatientImportReport.RowError(row.line, email, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.nadym.patient.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nadym.common.exception.ValidationException;
+import com.nadym.patient.dto.PatientDto;
+import com.nadym.patient.entity.Patient;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Reads an import upload one patient at a time, so the upload is never held in memory.
+ * Rows that cannot be parsed are returned with an error instead of aborting the import; a
+ * record longer than the limit aborts it, since its end cannot be found without reading it.
+ */
+abstract class PatientRowReader {
+
+    protected final BufferedReader reader;
+    protected final int maxRecordChars;
+    protected long lineNumber;
+
+    private PatientRowReader(Reader reader, int maxRecordChars) {
+        this.reader = new BufferedReader(reader);
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    static PatientRowReader csv(Reader reader, int maxRecordChars) {
+        return new Csv(reader, maxRecordChars);
+    }
+
+    static PatientRowReader ndjson(Reader reader, ObjectMapper objectMapper, int maxRecordChars) {
+        return new Ndjson(reader, objectMapper, maxRecordChars);
+    }
+
+    /** Next row, or {@code null} at the end of the upload. */
+    abstract Row next() throws IOException;
+
+    /**
+     * Like {@link BufferedReader#readLine()}, but gives up as soon as the record that started on
+     * {@code recordLine}, of which {@code recordChars} characters were already read, outgrows the limit.
+     */
+    protected String readLine(long recordLine, int recordChars) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '\n') {
+                return line.toString();
+            }
+            if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                return line.toString();
+            }
+            if (recordChars + line.length() >= maxRecordChars) {
+                throw new ValidationException("Record starting on line " + recordLine + " is longer than " +
+                                              maxRecordChars + " characters; the import stopped there");
+            }
+            line.append((char) c);
+        }
+        return line.length() > 0 ? line.toString() : null;
+    }
+
+    static class Row {
+
+        final long line;
+        final PatientDto patient;
+        final String error;
+
+        Row(long line, PatientDto patient, String error) {
+            this.line = line;
+            this.patient = patient;
+            this.error = error;
+        }
+    }
+
+    private static class Ndjson extends PatientRowReader {
+
+        private final ObjectMapper objectMapper;
+
+        Ndjson(Reader reader, ObjectMapper objectMapper, int maxRecordChars) {
+            super(reader, maxRecordChars);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Row next() throws IOException {
+            String line;
+            do {
+                line = readLine(lineNumber + 1, 0);
+                lineNumber++;
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            try {
+                return new Row(lineNumber, objectMapper.readValue(line, PatientDto.class), null);
+            } catch (JsonProcessingException e) {
+                return new Row(lineNumber, null, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    /** RFC 4180 CSV with a header row naming the PatientDto fields; quoted fields may span lines. */
+    private static class Csv extends PatientRowReader {
+
+        private static final Map<String, BiConsumer<PatientDto, String>> COLUMNS = new HashMap<>();
+
+        static {
+            COLUMNS.put("firstname", PatientDto::setFirstName);
+            COLUMNS.put("lastname", PatientDto::setLastName);
+            COLUMNS.put("email", PatientDto::setEmail);
+            COLUMNS.put("phone", PatientDto::setPhone);
+            COLUMNS.put("dateofbirth", (dto, value) -> dto.setDateOfBirth(LocalDate.parse(value)));
+            COLUMNS.put("gender", (dto, value) -> dto.setGender(Patient.Gender.valueOf(value.toUpperCase(Locale.ROOT))));
+            COLUMNS.put("address", PatientDto::setAddress);
+            COLUMNS.put("city", PatientDto::setCity);
+            COLUMNS.put("postalcode", PatientDto::setPostalCode);
+            COLUMNS.put("country", PatientDto::setCountry);
+            COLUMNS.put("emergencycontactname", PatientDto::setEmergencyContactName);
+            COLUMNS.put("emergencycontactphone", PatientDto::setEmergencyContactPhone);
+            COLUMNS.put("medicalhistory", PatientDto::setMedicalHistory);
+            COLUMNS.put("allergies", PatientDto::setAllergies);
+            COLUMNS.put("currentmedications", PatientDto::setCurrentMedications);
+        }
+
+        private List<BiConsumer<PatientDto, String>> header;
+        private String headerError;
+
+        Csv(Reader reader, int maxRecordChars) {
+            super(reader, maxRecordChars);
+        }
+
+        @Override
+        Row next() throws IOException {
+            if (header == null && headerError == null) {
+                readHeader();
+            }
+
+            List<String> fields;
+            long startLine;
+            do {
+                startLine = lineNumber + 1;
+                fields = readRecord();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isBlank());
+
+            if (headerError != null) {
+                return new Row(startLine, null, headerError);
+            }
+            if (fields.size() != header.size()) {
+                return new Row(startLine, null, "Expected " + header.size() + " columns but found " + fields.size());
+            }
+
+            PatientDto patient = new PatientDto();
+            for (int i = 0; i < fields.size(); i++) {
+                String value = fields.get(i).trim();
+                if (value.isEmpty() || header.get(i) == null) {
+                    continue;
+                }
+                try {
+                    header.get(i).accept(patient, value);
+                } catch (DateTimeParseException e) {
+                    return new Row(startLine, null, "Invalid date '" + value + "', expected yyyy-MM-dd");
+                } catch (IllegalArgumentException e) {
+                    return new Row(startLine, null, "Invalid gender '" + value + "'");
+                }
+            }
+            return new Row(startLine, patient, null);
+        }
+
+        // Unknown columns are ignored; a header without the required names fails every row
+        private void readHeader() throws IOException {
+            List<String> names = readRecord();
+            header = new ArrayList<>();
+            if (names == null) {
+                return;
+            }
+            for (String name : names) {
+                String key = name.trim().replace("_", "").toLowerCase(Locale.ROOT);
+                header.add(COLUMNS.get(key.startsWith("\uFEFF") ? key.substring(1) : key));
+            }
+            for (String required : List.of("firstname", "lastname", "dateofbirth")) {
+                if (!header.contains(COLUMNS.get(required))) {
+                    headerError = "CSV header must include firstName, lastName and dateOfBirth";
+                }
+            }
+        }
+
+        private List<String> readRecord() throws IOException {
+            long recordLine = lineNumber + 1;
+            String line = readLine(recordLine, 0);
+            if (line == null) {
+                return null;
+            }
+            lineNumber++;
+            int recordChars = line.length();
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == line.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    // Line break inside a quoted field
+                    line = readLine(recordLine, recordChars + 1);
+                    if (line == null) {
+                        break;
+                    }
+                    lineNumber++;
+                    recordChars += line.length() + 1;
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+
+                char c = line.charAt(i++);
+                if (quoted) {
+                    if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -1,45 +1,133 @@
 package com.nadym.patient.service;
 
+import com.nadym.common.dto.CursorPage;
 import com.nadym.common.exception.ResourceNotFoundException;
 import com.nadym.common.exception.ValidationException;
+import com.nadym.patient.dto.PatientChartDto;
 import com.nadym.patient.dto.PatientDto;
+import com.nadym.patient.entity.Appointment;
 import com.nadym.patient.entity.Patient;
+import com.nadym.patient.entity.Prescription;
+import com.nadym.patient.projection.PatientSuggestion;
+import com.nadym.patient.projection.PatientSummary;
+import com.nadym.patient.repository.AppointmentRepository;
 import com.nadym.patient.repository.PatientRepository;
+import com.nadym.patient.repository.PrescriptionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
 public class PatientService {
 
+    private static final Set<Appointment.AppointmentStatus> UPCOMING_STATUSES =
+            EnumSet.of(Appointment.AppointmentStatus.SCHEDULED, Appointment.AppointmentStatus.CONFIRMED);
+
     @Autowired
     private PatientRepository patientRepository;
 
-    public Page<Patient> getAllPatients(Pageable pageable) {
-        return patientRepository.findAll(pageable);
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PrescriptionRepository prescriptionRepository;
+
+    @Autowired
+    private PatientCache patientCache;
+
+    public Page<PatientSummary> getAllPatients(Pageable pageable) {
+        return patientRepository.findAllBy(pageable);
     }
 
     public Patient getPatientById(Long id) {
-        return patientRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Patient not found with id: " + id));
+        Optional<Patient> cached = patientCache.get(id);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        Patient patient = loadPatient(id);
+        patientCache.put(patient);
+        return patient;
+    }
+
+    /**
+     * Whether the caller is the patient {@code id}: by the token's patient_id claim, as the other
+     * services identify patients, or else by its email claim against the patient's email.
+     */
+    public boolean isPatientOwner(Long id, Authentication authentication) {
+        if (!(authentication instanceof JwtAuthenticationToken token)) {
+            return false;
+        }
+        Object patientId = token.getToken().getClaims().get("patient_id");
+        if (patientId != null) {
+            return id.toString().equals(patientId.toString());
+        }
+        String email = token.getToken().getClaimAsString("email");
+        if (email == null) {
+            return false;
+        }
+        try {
+            return email.equalsIgnoreCase(getPatientById(id).getEmail());
+        } catch (ResourceNotFoundException e) {
+            return false;
+        }
+    }
+
+    // Three queries whatever the chart size: patient, upcoming appointments, active prescriptions with items
+    public PatientChartDto getPatientChart(Long id) {
+        Patient patient = getPatientById(id);
+        List<Appointment> appointments = appointmentRepository.findUpcoming(id, LocalDateTime.now(), UPCOMING_STATUSES);
+        List<Prescription> prescriptions = prescriptionRepository.findWithItemsByPatientIdAndStatus(
+                id, Prescription.PrescriptionStatus.ACTIVE);
+        return new PatientChartDto(patient, appointments, prescriptions);
     }
 
     public Optional<Patient> getPatientByEmail(String email) {
-        return patientRepository.findByEmail(email);
+        Optional<Patient> cached = patientCache.getByEmail(email);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        Optional<Patient> patient = patientRepository.findByEmail(email);
+        patient.ifPresent(patientCache::put);
+        return patient;
+    }
+
+    public Page<PatientSummary> searchPatients(String searchTerm, Pageable pageable) {
+        return patientRepository.findBySearchTerm(searchTerm, escapeLike(searchTerm), pageable);
+    }
+
+    public List<PatientSuggestion> autocomplete(String prefix, int limit) {
+        String escaped = escapeLike(prefix.trim());
+        if (escaped.isEmpty()) {
+            return List.of();
+        }
+        return patientRepository.findByNamePrefix(escaped, limit);
     }
 
-    public Page<Patient> searchPatients(String searchTerm, Pageable pageable) {
-        return patientRepository.findBySearchTerm(searchTerm, pageable);
+    public CursorPage<PatientSummary> getPatientsAfter(String cursor, int size) {
+        PatientCursor after = PatientCursor.decode(cursor);
+        return toCursorPage(patientRepository.findPageAfter(after.getLastName(), after.getId(), size + 1), size);
+    }
+
+    public CursorPage<PatientSummary> searchPatientsAfter(String searchTerm, String cursor, int size) {
+        PatientCursor after = PatientCursor.decode(cursor);
+        return toCursorPage(patientRepository.findBySearchTermAfter(
+                searchTerm, escapeLike(searchTerm), after.getLastName(), after.getId(), size + 1), size);
     }
 
     public Patient createPatient(PatientDto patientDto) {
         // Check if patient with email already exists
-        if (patientDto.getEmail() != null && patientRepository.findByEmail(patientDto.getEmail()).isPresent()) {
+        if (patientDto.getEmail() != null && patientRepository.existsByEmail(patientDto.getEmail())) {
             throw new ValidationException("Patient with email " + patientDto.getEmail() + " already exists");
         }
 
@@ -48,28 +136,53 @@ public class PatientService {
     }
 
     public Patient updatePatient(Long id, PatientDto patientDto) {
-        Patient existingPatient = getPatientById(id);
+        // Cached patients are shared, so writes always start from a managed copy
+        Patient existingPatient = loadPatient(id);
 
         // Check if email is being changed and if new email already exists
         if (patientDto.getEmail() != null && 
             !patientDto.getEmail().equals(existingPatient.getEmail()) &&
-            patientRepository.findByEmail(patientDto.getEmail()).isPresent()) {
+            patientRepository.existsByEmail(patientDto.getEmail())) {
             throw new ValidationException("Patient with email " + patientDto.getEmail() + " already exists");
         }
 
         updateEntityFromDto(existingPatient, patientDto);
-        return patientRepository.save(existingPatient);
+        // Flushing assigns the new version, which becomes the floor for cached reads
+        Patient updatedPatient = patientRepository.saveAndFlush(existingPatient);
+        patientCache.invalidate(id, updatedPatient.getVersion());
+        return updatedPatient;
     }
 
     public void deletePatient(Long id) {
-        Patient patient = getPatientById(id);
+        Patient patient = loadPatient(id);
         patientRepository.delete(patient);
+        patientCache.invalidate(id, Long.MAX_VALUE);
     }
 
     public long getTotalPatientsCount() {
         return patientRepository.countAllPatients();
     }
 
+    private Patient loadPatient(Long id) {
+        return patientRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Patient not found with id: " + id));
+    }
+
+    // One extra row is fetched to know whether another page follows, instead of counting
+    private CursorPage<PatientSummary> toCursorPage(List<PatientSummary> rows, int size) {
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, size, null);
+        }
+        List<PatientSummary> content = rows.subList(0, size);
+        PatientSummary last = content.get(size - 1);
+        return new CursorPage<>(content, size, new PatientCursor(last.getLastName(), last.getId()).encode());
+    }
+
+    // Wildcards typed by the user are matched literally
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     private Patient convertToEntity(PatientDto dto) {
         Patient patient = new Patient();
         updateEntityFromDto(patient, dto);
@@ -0,0 +1,123 @@
+package com.nadym.patient.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.nadym.patient.dto.PatientChartDto;
+import com.nadym.patient.entity.Appointment;
+import com.nadym.patient.entity.Patient;
+import com.nadym.patient.entity.Prescription;
+import com.nadym.patient.entity.PrescriptionItem;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The chart endpoint must cost the same number of SQL statements however many prescriptions
+ * and items the patient has: no lazy loading per prescription or item, including while the
+ * chart is serialised.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@Import({PatientService.class, PatientCache.class, PatientChartIT.Config.class})
+class PatientChartIT {
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void chartStatementCountDoesNotDependOnPrescriptionsOrItems() throws Exception {
+        long small = chartStatements(1, 1);
+        long large = chartStatements(8, 6);
+
+        assertEquals(3, small, "patient, upcoming appointments, active prescriptions with items");
+        assertEquals(small, large);
+    }
+
+    private long chartStatements(int prescriptions, int itemsPerPrescription) throws Exception {
+        Long patientId = seed(prescriptions, itemsPerPrescription);
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        PatientChartDto chart = patientService.getPatientChart(patientId);
+        objectMapper.writeValueAsString(chart);
+        long statements = statistics.getPrepareStatementCount();
+
+        assertEquals(prescriptions, chart.getActivePrescriptions().size());
+        chart.getActivePrescriptions().forEach(p -> assertEquals(itemsPerPrescription, p.getItems().size()));
+        return statements;
+    }
+
+    private Long seed(int prescriptions, int itemsPerPrescription) {
+        Patient patient = new Patient();
+        patient.setFirstName("Chart");
+        patient.setLastName("Patient" + prescriptions);
+        patient.setEmail("chart" + prescriptions + "x" + itemsPerPrescription + "@example.com");
+        patient.setDateOfBirth(LocalDate.of(1980, 1, 1));
+        patient.setGender(Patient.Gender.values()[0]);
+        entityManager.persist(patient);
+
+        for (int a = 0; a < 3; a++) {
+            Appointment appointment = new Appointment();
+            appointment.setPatient(patient);
+            appointment.setDoctorId(1L);
+            appointment.setAppointmentDate(LocalDateTime.now().plusDays(a + 1));
+            entityManager.persist(appointment);
+        }
+
+        for (int p = 0; p < prescriptions; p++) {
+            Prescription prescription = new Prescription();
+            prescription.setPatient(patient);
+            prescription.setDoctorId(1L);
+            prescription.setPrescriptionDate(LocalDate.now().minusDays(p));
+            List<PrescriptionItem> items = new ArrayList<>();
+            for (int i = 0; i < itemsPerPrescription; i++) {
+                PrescriptionItem item = new PrescriptionItem();
+                item.setPrescription(prescription);
+                item.setMedicationName("Medication " + i);
+                item.setDosage("10 mg");
+                item.setFrequency("daily");
+                items.add(item);
+            }
+            prescription.setItems(items);
+            entityManager.persist(prescription);
+        }
+        return patient.getId();
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.nadym.patient.service;
+
+import com.nadym.patient.entity.Patient;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Insert throughput of patients before and after the switch from IDENTITY ids to pooled
+ * sequences with JDBC batching. "Before" replays what Hibernate issues for an IDENTITY id: one
+ * INSERT ... RETURNING id round trip per row, as it cannot batch them. "After" persists Patient
+ * entities through the EntityManager with this service's batch settings. Needs Docker for the
+ * Postgres container and is skipped without it. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = "patient.search.migrate-on-startup=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PatientInsertBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 100_000);
+    private static final int ROWS_PER_TRANSACTION = 1000;
+
+    private static final String IDENTITY_INSERT = "INSERT INTO patients_identity (first_name, last_name, email, " +
+            "date_of_birth, gender, city, created_at, version) VALUES (?, ?, ?, ?, ?, ?, ?, 0) RETURNING id";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+    private int batchSize;
+
+    @Test
+    void insertThroughputBeforeAndAfterBatching() {
+        // Same columns and indexes as patients, with the id the table had before the switch
+        jdbcTemplate.execute("CREATE TABLE patients_identity (LIKE patients INCLUDING ALL)");
+        jdbcTemplate.execute("ALTER TABLE patients_identity ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY");
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+
+        // Untimed passes so both paths run on a warm JIT and connection pool
+        insertWithIdentity(transaction, "warmup", ROWS_PER_TRANSACTION);
+        insertWithSequence(transaction, "warmup", ROWS_PER_TRANSACTION);
+
+        long start = System.nanoTime();
+        insertWithIdentity(transaction, "identity", ROWS);
+        double before = rowsPerSecond(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        insertWithSequence(transaction, "sequence", ROWS);
+        double after = rowsPerSecond(System.nanoTime() - start);
+
+        System.out.printf("IDENTITY, one INSERT per row:       %9.0f rows/s%n", before);
+        System.out.printf("pooled sequence, batches of %-4d    %9.0f rows/s (x%.1f)%n", batchSize, after, after / before);
+
+        assertTrue(after > before);
+    }
+
+    private void insertWithIdentity(TransactionTemplate transaction, String run, int rows) {
+        for (int from = 0; from < rows; from += ROWS_PER_TRANSACTION) {
+            int first = from;
+            int last = Math.min(rows, from + ROWS_PER_TRANSACTION);
+            transaction.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (PreparedStatement insert = connection.prepareStatement(IDENTITY_INSERT)) {
+                    for (int i = first; i < last; i++) {
+                        Patient patient = patient(run, i);
+                        insert.setString(1, patient.getFirstName());
+                        insert.setString(2, patient.getLastName());
+                        insert.setString(3, patient.getEmail());
+                        insert.setDate(4, Date.valueOf(patient.getDateOfBirth()));
+                        insert.setString(5, patient.getGender().name());
+                        insert.setString(6, patient.getCity());
+                        insert.setTimestamp(7, Timestamp.valueOf(LocalDateTime.now()));
+                        try (ResultSet id = insert.executeQuery()) {
+                            id.next();
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+    }
+
+    private void insertWithSequence(TransactionTemplate transaction, String run, int rows) {
+        for (int from = 0; from < rows; from += ROWS_PER_TRANSACTION) {
+            int first = from;
+            int last = Math.min(rows, from + ROWS_PER_TRANSACTION);
+            transaction.executeWithoutResult(status -> {
+                for (int i = first; i < last; i++) {
+                    entityManager.persist(patient(run, i));
+                    if ((i - first + 1) % batchSize == 0) {
+                        entityManager.flush();
+                        entityManager.clear();
+                    }
+                }
+            });
+            entityManager.clear();
+        }
+    }
+
+    private static Patient patient(String run, int i) {
+        Patient patient = new Patient();
+        patient.setFirstName("Benchmark");
+        patient.setLastName("Patient" + i);
+        patient.setEmail(run + "-" + i + "@example.fr");
+        patient.setDateOfBirth(LocalDate.of(1930, 1, 1).plusDays(i % 30000));
+        patient.setGender(Patient.Gender.values()[i % Patient.Gender.values().length]);
+        patient.setCity("Lyon");
+        return patient;
+    }
+
+    private static double rowsPerSecond(long nanos) {
+        return ROWS / (nanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+}
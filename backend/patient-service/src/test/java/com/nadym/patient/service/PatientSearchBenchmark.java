@@ -0,0 +1,173 @@
+package com.nadym.patient.service;
+
+import com.nadym.patient.repository.PatientSearchMigration;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Search latency on a generated patient table, first with the former LOWER(...) LIKE query
+ * and no index, then with the trigram search after PatientSearchMigration has run. Needs
+ * Docker for the Postgres container and is skipped without it. Run with
+ * {@code mvn test -Pbenchmark}; {@code -Dbenchmark.patients} changes the table size.
+ */
+@Tag("benchmark")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = "patient.search.migrate-on-startup=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({PatientService.class, PatientCache.class, PatientSearchMigration.class, PatientSearchBenchmark.Config.class})
+class PatientSearchBenchmark {
+
+    private static final int PATIENTS = Integer.getInteger("benchmark.patients", 1_000_000);
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 5);
+
+    // Names as typed at the front desk: accents dropped, case ignored, partial, misspelt or absent
+    private static final List<String> TERMS = List.of(
+            "dupont", "Lefèvre", "lefevre", "MOREAU", "guerin", "chéron", "helene", "bel",
+            "patient4242", "@example.fr", "durand", "zzzz");
+
+    private static final String LEGACY_MATCHES = "LOWER(p.first_name) LIKE LOWER(CONCAT('%', ?, '%')) " +
+            "OR LOWER(p.last_name) LIKE LOWER(CONCAT('%', ?, '%')) " +
+            "OR LOWER(p.email) LIKE LOWER(CONCAT('%', ?, '%'))";
+
+    private static final String SEED = "INSERT INTO patients (id, first_name, last_name, email, phone, date_of_birth, " +
+            "gender, city, created_at, version) " +
+            "SELECT i, " +
+            "(ARRAY['Jean','Hélène','Élodie','François','Anaïs','Loïc','Chloé','Jérôme','Inès','Noël'," +
+            "'Zoé','Gaëlle','Benoît','Maëlys','Cécile','Théo','Léa','Raphaël','Océane','Agnès'])[1 + (i / 400) % 20], " +
+            "(ARRAY['Dup','Lef','Mor','Gir','Bél','Roc','Fau','Mar','Gué','Ché','Lam','Ber','Dub','Bon','Mic'," +
+            "'Hér','Pél','Cou','Rou','Mén'])[1 + i % 20] || " +
+            "(ARRAY['ont','èvre','eau','ard','ier','het','lin','tin','rin','ron','bert','nard','ois','net','aud'," +
+            "'ault','ès','ac','oux','el'])[1 + (i / 20) % 20], " +
+            "'patient' || i || '@example.fr', " +
+            "'06' || lpad((i % 100000000)::text, 8, '0'), " +
+            "DATE '1930-01-01' + (i % 30000), " +
+            "(ARRAY['MALE','FEMALE','OTHER'])[1 + i % 3], " +
+            "(ARRAY['Paris','Lyon','Marseille','Créteil','Besançon','Nîmes'])[1 + i % 6], " +
+            "now(), 0 " +
+            "FROM generate_series(1, ?) AS i";
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:15-alpine");
+
+    @DynamicPropertySource
+    static void postgres(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.jpa.properties.hibernate.dialect", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private PatientSearchMigration searchMigration;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void searchLatencyBeforeAndAfterTheTrigramIndex() {
+        // The container user is a superuser, which the migration expects the DBA to be
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS unaccent");
+        long start = System.nanoTime();
+        jdbcTemplate.update(SEED, PATIENTS);
+        jdbcTemplate.execute("ANALYZE patients");
+        System.out.printf("Seeded %d patients in %d s%n", PATIENTS, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+
+        Latencies legacy = measure("legacy LIKE", term -> {
+            jdbcTemplate.queryForList("SELECT * FROM patients p WHERE " + LEGACY_MATCHES + " LIMIT 20", term, term, term);
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM patients p WHERE " + LEGACY_MATCHES, Long.class, term, term, term);
+        });
+
+        start = System.nanoTime();
+        ReflectionTestUtils.setField(searchMigration, "enabled", true);
+        ReflectionTestUtils.invokeMethod(searchMigration, "migrate");
+        jdbcTemplate.execute("ANALYZE patients");
+        System.out.printf("Migrated search in %d s%n", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+
+        Latencies trigram = measure("trigram", term -> patientService.searchPatients(term, PageRequest.of(0, 20)));
+        Latencies autocomplete = measure("autocomplete", term -> patientService.autocomplete(term, 10));
+
+        System.out.println(legacy);
+        System.out.println(trigram);
+        System.out.println(autocomplete);
+
+        assertTrue(trigram.percentileMs(0.99) < legacy.percentileMs(0.99));
+    }
+
+    private static Latencies measure(String name, Consumer<String> search) {
+        // One untimed pass warms the caches and the plans
+        TERMS.forEach(search);
+
+        long[] latencies = new long[ROUNDS * TERMS.size()];
+        int n = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String term : TERMS) {
+                long start = System.nanoTime();
+                search.accept(term);
+                latencies[n++] = System.nanoTime() - start;
+            }
+        }
+        return new Latencies(name, latencies);
+    }
+
+    private static class Latencies {
+
+        private final String name;
+        private final long[] sorted;
+
+        Latencies(String name, long[] latencies) {
+            this.name = name;
+            this.sorted = latencies.clone();
+            Arrays.sort(this.sorted);
+        }
+
+        double percentileMs(double percentile) {
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-12s p50=%8.1f ms  p99=%8.1f ms  (%d searches)",
+                    name, percentileMs(0.50), percentileMs(0.99), sorted.length);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
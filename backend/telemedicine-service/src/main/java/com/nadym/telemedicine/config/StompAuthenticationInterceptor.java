@@ -0,0 +1,117 @@
+package com.nadym.telemedicine.config;
+
+import com.nadym.common.exception.ResourceNotFoundException;
+import com.nadym.telemedicine.service.ChatRoomDirectory;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.messaging.access.intercept.MessageAuthorizationContext;
+import org.springframework.security.messaging.access.intercept.MessageMatcherDelegatingAuthorizationManager;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Authenticates a STOMP session from the bearer token on its CONNECT frame, then authorizes
+ * every inbound frame against an allow-list: SEND only to /app/**, SUBSCRIBE only to a single
+ * room topic the user takes part in or to the user's own error, presence and signal queues.
+ * Pattern destinations are refused outright since the simple broker would expand them. Room
+ * lookups are cached, so messages on an established session never reach the database here.
+ */
+@Component
+public class StompAuthenticationInterceptor implements ChannelInterceptor {
+
+    @Autowired
+    private JwtDecoder jwtDecoder;
+
+    @Autowired
+    private JwtAuthenticationConverter jwtAuthenticationConverter;
+
+    @Autowired
+    private ChatRoomDirectory roomDirectory;
+
+    private AuthorizationManager<Message<?>> authorizationManager;
+
+    @PostConstruct
+    void init() {
+        authorizationManager = MessageMatcherDelegatingAuthorizationManager.builder()
+                .simpTypeMatchers(SimpMessageType.CONNECT, SimpMessageType.HEARTBEAT,
+                        SimpMessageType.UNSUBSCRIBE, SimpMessageType.DISCONNECT).permitAll()
+                .simpSubscribeDestMatchers("/topic/rooms/{roomId}").access(this::roomParticipant)
+                .simpSubscribeDestMatchers("/user/queue/errors", "/user/queue/presence", "/user/queue/signals").authenticated()
+                .simpMessageDestMatchers("/app/**").authenticated()
+                .anyMessage().denyAll()
+                .build();
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        switch (accessor.getCommand()) {
+            case CONNECT -> accessor.setUser(authenticate(accessor.getFirstNativeHeader("Authorization")));
+            case SUBSCRIBE, SEND -> {
+                String destination = accessor.getDestination();
+                if (destination == null || isPattern(destination)) {
+                    throw new AccessDeniedException("Destination not allowed: " + destination);
+                }
+            }
+            default -> { }
+        }
+
+        Authentication user = accessor.getUser() instanceof Authentication authentication ? authentication : null;
+        AuthorizationDecision decision = authorizationManager.check(() -> user, message);
+        if (decision == null || !decision.isGranted()) {
+            throw new AccessDeniedException("Not allowed: " + accessor.getCommand() + " " + accessor.getDestination());
+        }
+        return message;
+    }
+
+    private AuthorizationDecision roomParticipant(Supplier<Authentication> authentication,
+                                                  MessageAuthorizationContext<?> context) {
+        if (!(authentication.get() instanceof JwtAuthenticationToken token)) {
+            return new AuthorizationDecision(false);
+        }
+        try {
+            roomDirectory.authorize(context.getVariables().get("roomId"), token);
+            return new AuthorizationDecision(true);
+        } catch (AccessDeniedException | ResourceNotFoundException e) {
+            return new AuthorizationDecision(false);
+        }
+    }
+
+    private JwtAuthenticationToken authenticate(String header) {
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            throw new AccessDeniedException("Missing bearer token on CONNECT");
+        }
+        try {
+            AbstractAuthenticationToken token = jwtAuthenticationConverter.convert(jwtDecoder.decode(header.substring(7).trim()));
+            return (JwtAuthenticationToken) token;
+        } catch (JwtException | AuthenticationException e) {
+            throw new AccessDeniedException("Invalid bearer token: " + e.getMessage());
+        }
+    }
+
+    // Ant-style and URI-template characters that the broker's subscription registry would treat as a pattern
+    private static boolean isPattern(String destination) {
+        return destination.indexOf('*') >= 0 || destination.indexOf('?') >= 0 || destination.indexOf('{') >= 0;
+    }
+}
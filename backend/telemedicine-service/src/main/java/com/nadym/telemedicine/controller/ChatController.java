@@ -0,0 +1,51 @@
+package com.nadym.telemedicine.controller;
+
+import com.nadym.telemedicine.dto.ChatMessageDto;
+import com.nadym.telemedicine.dto.ReadReceiptDto;
+import com.nadym.telemedicine.service.ChatService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Controller;
+
+import java.util.Map;
+
+@Controller
+public class ChatController {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatController.class);
+
+    @Autowired
+    private ChatService chatService;
+
+    @MessageMapping("/rooms/{roomId}/messages")
+    public void sendMessage(
+            @DestinationVariable String roomId,
+            @Payload ChatMessageDto message,
+            JwtAuthenticationToken authentication) {
+        
+        chatService.send(roomId, authentication, message);
+    }
+
+    @MessageMapping("/rooms/{roomId}/read")
+    public void markRead(
+            @DestinationVariable String roomId,
+            @Payload ReadReceiptDto receipt,
+            JwtAuthenticationToken authentication) {
+        
+        chatService.markRead(roomId, authentication, receipt);
+    }
+
+    @MessageExceptionHandler
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public Map<String, String> handleException(Exception e) {
+        log.debug("Chat frame rejected: {}", e.getMessage());
+        return Map.of("error", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+    }
+}
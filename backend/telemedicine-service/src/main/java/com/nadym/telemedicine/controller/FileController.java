@@ -0,0 +1,139 @@
+package com.nadym.telemedicine.controller;
+
+import com.nadym.common.exception.ValidationException;
+import com.nadym.telemedicine.dto.UploadRequestDto;
+import com.nadym.telemedicine.dto.UploadStatusDto;
+import com.nadym.telemedicine.service.BlobStore;
+import com.nadym.telemedicine.service.ConsultationFileService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@RestController
+@RequestMapping("/api/telemedicine")
+@Tag(name = "Consultation Files", description = "APIs for uploading and downloading consultation files")
+public class FileController {
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+|\\*)");
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    @Autowired
+    private ConsultationFileService fileService;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @PostMapping("/uploads")
+    @Operation(summary = "Start a resumable upload", description = "Returns the upload id to send chunks to")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('PATIENT') or hasRole('NURSE')")
+    public ResponseEntity<UploadStatusDto> createUpload(@Valid @RequestBody UploadRequestDto request, JwtAuthenticationToken authentication) {
+        UploadStatusDto status = fileService.createUpload(request, authentication);
+        return ResponseEntity.status(HttpStatus.CREATED).body(status);
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    @Operation(summary = "Get upload progress", description = "The offset is where the next chunk must start")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('PATIENT') or hasRole('NURSE')")
+    public ResponseEntity<UploadStatusDto> getUpload(@PathVariable String uploadId, JwtAuthenticationToken authentication) {
+        return ResponseEntity.ok(fileService.getUpload(uploadId, authentication));
+    }
+
+    @PutMapping("/uploads/{uploadId}")
+    @Operation(summary = "Upload a chunk", description = "Raw bytes with a Content-Range header starting at the current offset")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('PATIENT') or hasRole('NURSE')")
+    public ResponseEntity<UploadStatusDto> uploadChunk(
+            @PathVariable String uploadId,
+            @Parameter(description = "bytes start-end/total") @RequestHeader(HttpHeaders.CONTENT_RANGE) String contentRange,
+            HttpServletRequest request,
+            JwtAuthenticationToken authentication) throws IOException {
+        
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange.trim());
+        if (!matcher.matches()) {
+            throw new ValidationException("Content-Range must look like 'bytes start-end/total'");
+        }
+        long start = Long.parseLong(matcher.group(1));
+        long length = Long.parseLong(matcher.group(2)) - start + 1;
+        if (length < 1) {
+            throw new ValidationException("Content-Range end must not be before its start");
+        }
+        if (request.getContentLengthLong() >= 0 && request.getContentLengthLong() != length) {
+            throw new ValidationException("Content-Length does not match Content-Range");
+        }
+
+        UploadStatusDto status = fileService.appendChunk(uploadId, authentication, start, length, request.getInputStream());
+        return ResponseEntity.ok(status);
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    @Operation(summary = "Abort an upload")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('PATIENT') or hasRole('NURSE')")
+    public ResponseEntity<Void> deleteUpload(@PathVariable String uploadId, JwtAuthenticationToken authentication) {
+        fileService.deleteUpload(uploadId, authentication);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/rooms/{roomId}/files/{checksum}")
+    @Operation(summary = "Download a file of the room's consultation", description = "Supports a single HTTP Range")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('PATIENT') or hasRole('NURSE')")
+    public void downloadFile(
+            @PathVariable String roomId,
+            @PathVariable String checksum,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            JwtAuthenticationToken authentication,
+            HttpServletResponse response) throws IOException {
+        
+        ConsultationFileService.Download download = fileService.getDownload(roomId, checksum, authentication);
+        BlobStore.Blob blob = download.getBlob();
+        long size = blob.getSize();
+        // Never rendered by the browser as a page of this origin, whatever the uploader sent
+        response.setContentType(download.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(download.getFileName(), StandardCharsets.UTF_8).build().toString());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Content-addressed, so the bytes behind a URL never change
+        response.setHeader(HttpHeaders.ETAG, "\"" + blob.getChecksum() + "\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable");
+
+        long start = 0;
+        long end = size - 1;
+        // Multiple ranges are allowed to be ignored; the whole file is sent instead
+        Matcher matcher = range != null ? RANGE.matcher(range.trim()) : null;
+        if (matcher != null && matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            if (matcher.group(1).isEmpty()) {
+                start = Math.max(0, size - Long.parseLong(matcher.group(2)));
+            } else {
+                start = Long.parseLong(matcher.group(1));
+                if (!matcher.group(2).isEmpty()) {
+                    end = Math.min(end, Long.parseLong(matcher.group(2)));
+                }
+            }
+            if (start > end) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        }
+
+        response.setContentLengthLong(end - start + 1);
+        blobStore.transfer(blob, start, end - start + 1, response.getOutputStream());
+    }
+}
@@ -0,0 +1,62 @@
+package com.nadym.telemedicine.controller;
+
+import com.nadym.telemedicine.dto.PresenceEventDto;
+import com.nadym.telemedicine.dto.SignalDto;
+import com.nadym.telemedicine.service.SignalingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Controller;
+
+import java.util.Map;
+
+@Controller
+public class SignalingController {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalingController.class);
+
+    @Autowired
+    private SignalingService signalingService;
+
+    @MessageMapping("/rooms/{roomId}/join")
+    @SendToUser(destinations = "/queue/presence", broadcast = false)
+    public PresenceEventDto join(
+            @DestinationVariable String roomId,
+            @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId,
+            JwtAuthenticationToken authentication) {
+        
+        return signalingService.join(roomId, sessionId, authentication);
+    }
+
+    @MessageMapping("/rooms/{roomId}/leave")
+    public void leave(
+            @DestinationVariable String roomId,
+            @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        
+        signalingService.leave(roomId, sessionId);
+    }
+
+    @MessageMapping("/rooms/{roomId}/signal")
+    public void signal(
+            @DestinationVariable String roomId,
+            @Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId,
+            @Payload SignalDto signal) {
+        
+        signalingService.signal(roomId, sessionId, signal);
+    }
+
+    @MessageExceptionHandler
+    @SendToUser(destinations = "/queue/errors", broadcast = false)
+    public Map<String, String> handleException(Exception e) {
+        log.debug("Signaling frame rejected: {}", e.getMessage());
+        return Map.of("error", e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+    }
+}
@@ -1,7 +1,13 @@
 package com.nadym.telemedicine.controller;
 
+import com.nadym.common.dto.CursorPage;
+import com.nadym.common.exception.ValidationException;
 import com.nadym.telemedicine.entity.VideoConsultation;
+import com.nadym.telemedicine.projection.ChatAttachment;
+import com.nadym.telemedicine.projection.ChatMessageSummary;
+import com.nadym.telemedicine.service.ChatHistoryService;
 import com.nadym.telemedicine.service.TelemedicineService;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,6 +17,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -23,6 +30,9 @@ public class TelemedicineController {
     @Autowired
     private TelemedicineService telemedicineService;
 
+    @Autowired
+    private ChatHistoryService chatHistoryService;
+
     @GetMapping("/doctor/{doctorId}/consultations")
     @Operation(summary = "Get doctor consultations")
     @PreAuthorize("hasRole('DOCTOR') and #doctorId == authentication.principal.claims['user_id']")
@@ -90,4 +100,37 @@ public class TelemedicineController {
         VideoConsultation consultation = telemedicineService.cancelConsultation(consultationId, reason);
         return ResponseEntity.ok(consultation);
     }
-}
\ No newline at end of file
+
+    @GetMapping("/rooms/{roomId}/messages")
+    @Operation(summary = "Get chat history", description = "Newest first, keyset-paginated; attachments are fetched separately")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('PATIENT') or hasRole('NURSE')")
+    public ResponseEntity<CursorPage<ChatMessageSummary>> getChatHistory(
+            @PathVariable String roomId,
+            @Parameter(description = "Continuation token from the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "50") int size,
+            JwtAuthenticationToken authentication) {
+        
+        if (size < 1 || size > 200) {
+            throw new ValidationException("Page size must be between 1 and 200");
+        }
+        return ResponseEntity.ok(chatHistoryService.getHistory(roomId, authentication, cursor, size));
+    }
+
+    @GetMapping("/rooms/{roomId}/messages/{messageId}/attachment")
+    @Operation(summary = "Get chat message attachment metadata")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('PATIENT') or hasRole('NURSE')")
+    public ResponseEntity<ChatAttachment> getChatAttachment(
+            @PathVariable String roomId,
+            @PathVariable Long messageId,
+            JwtAuthenticationToken authentication) {
+        
+        return ResponseEntity.ok(chatHistoryService.getAttachment(roomId, authentication, messageId));
+    }
+
+    @GetMapping("/rooms/{roomId}/unread")
+    @Operation(summary = "Count unread chat messages", description = "Messages from the other participants that nobody has read yet")
+    @PreAuthorize("hasRole('DOCTOR') or hasRole('PATIENT') or hasRole('NURSE')")
+    public ResponseEntity<Long> getUnreadCount(@PathVariable String roomId, JwtAuthenticationToken authentication) {
+        return ResponseEntity.ok(chatHistoryService.getUnreadCount(roomId, authentication));
+    }
+}
@@ -0,0 +1,52 @@
+package com.nadym.telemedicine.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class ChatEventDto {
+
+    private Type type;
+    private ChatMessageDto message;
+    private List<Long> messageIds;
+    private Long readerId;
+    private LocalDateTime readAt;
+
+    // Constructors
+    public ChatEventDto() {}
+
+    public static ChatEventDto message(ChatMessageDto message) {
+        ChatEventDto event = new ChatEventDto();
+        event.type = Type.MESSAGE;
+        event.message = message;
+        return event;
+    }
+
+    public static ChatEventDto read(List<Long> messageIds, Long readerId, LocalDateTime readAt) {
+        ChatEventDto event = new ChatEventDto();
+        event.type = Type.READ;
+        event.messageIds = messageIds;
+        event.readerId = readerId;
+        event.readAt = readAt;
+        return event;
+    }
+
+    // Getters and Setters
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public ChatMessageDto getMessage() { return message; }
+    public void setMessage(ChatMessageDto message) { this.message = message; }
+
+    public List<Long> getMessageIds() { return messageIds; }
+    public void setMessageIds(List<Long> messageIds) { this.messageIds = messageIds; }
+
+    public Long getReaderId() { return readerId; }
+    public void setReaderId(Long readerId) { this.readerId = readerId; }
+
+    public LocalDateTime getReadAt() { return readAt; }
+    public void setReadAt(LocalDateTime readAt) { this.readAt = readAt; }
+
+    public enum Type {
+        MESSAGE, READ
+    }
+}
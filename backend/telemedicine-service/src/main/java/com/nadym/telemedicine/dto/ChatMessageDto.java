@@ -0,0 +1,61 @@
+package com.nadym.telemedicine.dto;
+
+import com.nadym.telemedicine.entity.ChatMessage;
+
+import java.time.LocalDateTime;
+
+public class ChatMessageDto {
+
+    private Long id;
+    private Long consultationId;
+    private String roomId;
+    private Long senderId;
+    private ChatMessage.SenderType senderType;
+    private String content;
+    private ChatMessage.MessageType messageType;
+    private LocalDateTime sentAt;
+    private LocalDateTime readAt;
+    private String fileUrl;
+    private String fileName;
+    private Long fileSize;
+
+    // Constructors
+    public ChatMessageDto() {}
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getConsultationId() { return consultationId; }
+    public void setConsultationId(Long consultationId) { this.consultationId = consultationId; }
+
+    public String getRoomId() { return roomId; }
+    public void setRoomId(String roomId) { this.roomId = roomId; }
+
+    public Long getSenderId() { return senderId; }
+    public void setSenderId(Long senderId) { this.senderId = senderId; }
+
+    public ChatMessage.SenderType getSenderType() { return senderType; }
+    public void setSenderType(ChatMessage.SenderType senderType) { this.senderType = senderType; }
+
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+
+    public ChatMessage.MessageType getMessageType() { return messageType; }
+    public void setMessageType(ChatMessage.MessageType messageType) { this.messageType = messageType; }
+
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+
+    public LocalDateTime getReadAt() { return readAt; }
+    public void setReadAt(LocalDateTime readAt) { this.readAt = readAt; }
+
+    public String getFileUrl() { return fileUrl; }
+    public void setFileUrl(String fileUrl) { this.fileUrl = fileUrl; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public Long getFileSize() { return fileSize; }
+    public void setFileSize(Long fileSize) { this.fileSize = fileSize; }
+}
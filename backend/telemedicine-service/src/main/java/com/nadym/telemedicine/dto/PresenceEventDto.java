@@ -0,0 +1,61 @@
+package com.nadym.telemedicine.dto;
+
+import java.util.List;
+
+public class PresenceEventDto {
+
+    private Type type;
+    private String node;
+    private RoomMemberDto member;
+    private List<RoomMemberDto> members;
+
+    // Constructors
+    public PresenceEventDto() {}
+
+    public static PresenceEventDto joined(String node, RoomMemberDto member) {
+        return of(Type.JOINED, node, member, null);
+    }
+
+    public static PresenceEventDto left(String node, RoomMemberDto member) {
+        return of(Type.LEFT, node, member, null);
+    }
+
+    public static PresenceEventDto refresh(String node, List<RoomMemberDto> members) {
+        return of(Type.REFRESH, node, null, members);
+    }
+
+    public static PresenceEventDto snapshot(RoomMemberDto self, List<RoomMemberDto> members) {
+        return of(Type.SNAPSHOT, null, self, members);
+    }
+
+    private static PresenceEventDto of(Type type, String node, RoomMemberDto member, List<RoomMemberDto> members) {
+        PresenceEventDto event = new PresenceEventDto();
+        event.type = type;
+        event.node = node;
+        event.member = member;
+        event.members = members;
+        return event;
+    }
+
+    // Getters and Setters
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public String getNode() { return node; }
+    public void setNode(String node) { this.node = node; }
+
+    public RoomMemberDto getMember() { return member; }
+    public void setMember(RoomMemberDto member) { this.member = member; }
+
+    public List<RoomMemberDto> getMembers() { return members; }
+    public void setMembers(List<RoomMemberDto> members) { this.members = members; }
+
+    public enum Type {
+        // Broadcast to the room topic
+        JOINED, LEFT,
+        // Replica-to-replica only
+        REFRESH,
+        // Sent to a session once it has joined: itself and everyone already in the room
+        SNAPSHOT
+    }
+}
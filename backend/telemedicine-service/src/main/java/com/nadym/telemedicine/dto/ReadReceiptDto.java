@@ -0,0 +1,15 @@
+package com.nadym.telemedicine.dto;
+
+import java.util.List;
+
+public class ReadReceiptDto {
+
+    private List<Long> messageIds;
+
+    // Constructors
+    public ReadReceiptDto() {}
+
+    // Getters and Setters
+    public List<Long> getMessageIds() { return messageIds; }
+    public void setMessageIds(List<Long> messageIds) { this.messageIds = messageIds; }
+}
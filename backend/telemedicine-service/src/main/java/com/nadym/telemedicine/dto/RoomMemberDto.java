@@ -0,0 +1,42 @@
+package com.nadym.telemedicine.dto;
+
+import com.nadym.telemedicine.entity.ChatMessage;
+
+import java.time.LocalDateTime;
+
+public class RoomMemberDto {
+
+    private String sessionId;
+    private Long userId;
+    private ChatMessage.SenderType role;
+    private LocalDateTime joinedAt;
+    // Orders the joins of one session on its replica, so a late snapshot cannot undo a leave
+    private long epoch;
+
+    // Constructors
+    public RoomMemberDto() {}
+
+    public RoomMemberDto(String sessionId, Long userId, ChatMessage.SenderType role, LocalDateTime joinedAt, long epoch) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.role = role;
+        this.joinedAt = joinedAt;
+        this.epoch = epoch;
+    }
+
+    // Getters and Setters
+    public String getSessionId() { return sessionId; }
+    public void setSessionId(String sessionId) { this.sessionId = sessionId; }
+
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+
+    public ChatMessage.SenderType getRole() { return role; }
+    public void setRole(ChatMessage.SenderType role) { this.role = role; }
+
+    public LocalDateTime getJoinedAt() { return joinedAt; }
+    public void setJoinedAt(LocalDateTime joinedAt) { this.joinedAt = joinedAt; }
+
+    public long getEpoch() { return epoch; }
+    public void setEpoch(long epoch) { this.epoch = epoch; }
+}
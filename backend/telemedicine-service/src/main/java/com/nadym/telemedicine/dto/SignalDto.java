@@ -0,0 +1,32 @@
+package com.nadym.telemedicine.dto;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+public class SignalDto {
+
+    private Type type;
+    private String from;
+    private String to;
+    private JsonNode payload;
+
+    // Constructors
+    public SignalDto() {}
+
+    // Getters and Setters
+    public Type getType() { return type; }
+    public void setType(Type type) { this.type = type; }
+
+    public String getFrom() { return from; }
+    public void setFrom(String from) { this.from = from; }
+
+    public String getTo() { return to; }
+    public void setTo(String to) { this.to = to; }
+
+    // SDP description or ICE candidate exactly as the browser produced it; relayed untouched
+    public JsonNode getPayload() { return payload; }
+    public void setPayload(JsonNode payload) { this.payload = payload; }
+
+    public enum Type {
+        OFFER, ANSWER, ICE_CANDIDATE, HANG_UP
+    }
+}
@@ -0,0 +1,45 @@
+package com.nadym.telemedicine.dto;
+
+public class UploadStatusDto {
+
+    private String uploadId;
+    private String roomId;
+    private String fileName;
+    private String contentType;
+    private Long size;
+    private Long offset;
+    private boolean complete;
+    private String checksum;
+    private String fileUrl;
+
+    // Constructors
+    public UploadStatusDto() {}
+
+    // Getters and Setters
+    public String getUploadId() { return uploadId; }
+    public void setUploadId(String uploadId) { this.uploadId = uploadId; }
+
+    public String getRoomId() { return roomId; }
+    public void setRoomId(String roomId) { this.roomId = roomId; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public Long getSize() { return size; }
+    public void setSize(Long size) { this.size = size; }
+
+    public Long getOffset() { return offset; }
+    public void setOffset(Long offset) { this.offset = offset; }
+
+    public boolean isComplete() { return complete; }
+    public void setComplete(boolean complete) { this.complete = complete; }
+
+    public String getChecksum() { return checksum; }
+    public void setChecksum(String checksum) { this.checksum = checksum; }
+
+    public String getFileUrl() { return fileUrl; }
+    public void setFileUrl(String fileUrl) { this.fileUrl = fileUrl; }
+}
@@ -8,7 +8,10 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "chat_messages")
+@Table(name = "chat_messages", indexes = {
+        // History pages seek on (consultation_id, sent_at, id) from the newest message backwards
+        @Index(name = "idx_chat_messages_consultation_sent", columnList = "consultation_id, sent_at, id")
+})
 public class ChatMessage extends BaseEntity {
 
     @NotNull(message = "Consultation ID is required")
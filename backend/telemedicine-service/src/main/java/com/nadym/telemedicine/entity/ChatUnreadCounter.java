@@ -0,0 +1,61 @@
+package com.nadym.telemedicine.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Number of messages of one consultation, sent by one kind of participant, that nobody has
+ * read yet. Maintained by the chat writer with every insert and read receipt, so an unread
+ * badge is a read of at most three rows.
+ */
+@Entity
+@Table(name = "chat_unread_counters")
+@IdClass(ChatUnreadCounter.Key.class)
+public class ChatUnreadCounter {
+
+    @Id
+    @Column(name = "consultation_id", nullable = false)
+    private Long consultationId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "sender_type", nullable = false)
+    private ChatMessage.SenderType senderType;
+
+    @Column(name = "unread_count", nullable = false)
+    private long unreadCount;
+
+    // Constructors
+    public ChatUnreadCounter() {}
+
+    // Getters and Setters
+    public Long getConsultationId() { return consultationId; }
+    public void setConsultationId(Long consultationId) { this.consultationId = consultationId; }
+
+    public ChatMessage.SenderType getSenderType() { return senderType; }
+    public void setSenderType(ChatMessage.SenderType senderType) { this.senderType = senderType; }
+
+    public long getUnreadCount() { return unreadCount; }
+    public void setUnreadCount(long unreadCount) { this.unreadCount = unreadCount; }
+
+    public static class Key implements Serializable {
+
+        private Long consultationId;
+        private ChatMessage.SenderType senderType;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(consultationId, key.consultationId) && senderType == key.senderType;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(consultationId, senderType);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.nadym.telemedicine.entity;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * A stored blob as uploaded to one consultation. Blobs are shared by content, so the same
+ * checksum can be referenced by several consultations, each under its own name and type;
+ * a download is only served through a consultation that references the blob.
+ */
+@Entity
+@Table(name = "consultation_files", indexes = {
+        // The orphan blob sweep looks blobs up by checksum alone
+        @Index(name = "idx_consultation_files_checksum", columnList = "checksum")
+})
+@IdClass(ConsultationFile.Key.class)
+public class ConsultationFile {
+
+    @Id
+    @Column(name = "consultation_id", nullable = false)
+    private Long consultationId;
+
+    @Id
+    @Column(name = "checksum", nullable = false, length = 64)
+    private String checksum;
+
+    @Column(name = "file_name", nullable = false)
+    private String fileName;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    @Column(name = "uploaded_by", nullable = false)
+    private String uploadedBy;
+
+    @Column(name = "uploaded_at", nullable = false)
+    private LocalDateTime uploadedAt;
+
+    // Constructors
+    public ConsultationFile() {}
+
+    // Getters and Setters
+    public Long getConsultationId() { return consultationId; }
+    public void setConsultationId(Long consultationId) { this.consultationId = consultationId; }
+
+    public String getChecksum() { return checksum; }
+    public void setChecksum(String checksum) { this.checksum = checksum; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public String getContentType() { return contentType; }
+    public void setContentType(String contentType) { this.contentType = contentType; }
+
+    public Long getFileSize() { return fileSize; }
+    public void setFileSize(Long fileSize) { this.fileSize = fileSize; }
+
+    public String getUploadedBy() { return uploadedBy; }
+    public void setUploadedBy(String uploadedBy) { this.uploadedBy = uploadedBy; }
+
+    public LocalDateTime getUploadedAt() { return uploadedAt; }
+    public void setUploadedAt(LocalDateTime uploadedAt) { this.uploadedAt = uploadedAt; }
+
+    public static class Key implements Serializable {
+
+        private Long consultationId;
+        private String checksum;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(consultationId, key.consultationId) && Objects.equals(checksum, key.checksum);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(consultationId, checksum);
+        }
+    }
+}
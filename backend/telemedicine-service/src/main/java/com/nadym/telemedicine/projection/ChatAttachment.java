@@ -0,0 +1,16 @@
+package com.nadym.telemedicine.projection;
+
+import com.nadym.telemedicine.entity.ChatMessage;
+
+public interface ChatAttachment {
+
+    Long getId();
+
+    ChatMessage.MessageType getMessageType();
+
+    String getFileUrl();
+
+    String getFileName();
+
+    Long getFileSize();
+}
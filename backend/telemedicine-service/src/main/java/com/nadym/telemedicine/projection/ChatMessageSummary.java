@@ -0,0 +1,26 @@
+package com.nadym.telemedicine.projection;
+
+import com.nadym.telemedicine.entity.ChatMessage;
+
+import java.time.LocalDateTime;
+
+/**
+ * A message as shown in the chat history. Attachment columns and the consultation are left
+ * out; a FILE, IMAGE, AUDIO or VIDEO message's attachment is fetched separately when opened.
+ */
+public interface ChatMessageSummary {
+
+    Long getId();
+
+    Long getSenderId();
+
+    ChatMessage.SenderType getSenderType();
+
+    String getContent();
+
+    ChatMessage.MessageType getMessageType();
+
+    LocalDateTime getSentAt();
+
+    LocalDateTime getReadAt();
+}
@@ -0,0 +1,41 @@
+package com.nadym.telemedicine.repository;
+
+import com.nadym.telemedicine.entity.ChatMessage;
+import com.nadym.telemedicine.projection.ChatAttachment;
+import com.nadym.telemedicine.projection.ChatMessageSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
+
+    String SUMMARY_COLUMNS = "m.id AS id, m.sender_id AS \"senderId\", m.sender_type AS \"senderType\", " +
+                             "m.content AS content, m.message_type AS \"messageType\", " +
+                             "m.sent_at AS \"sentAt\", m.read_at AS \"readAt\"";
+
+    @Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM chat_messages m " +
+                   "WHERE m.consultation_id = :consultationId " +
+                   "ORDER BY m.sent_at DESC, m.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<ChatMessageSummary> findLatest(@Param("consultationId") Long consultationId, @Param("limit") int limit);
+
+    // Keyset pages: a row-value comparison on (sent_at, id) seeks straight into the index
+    @Query(value = "SELECT " + SUMMARY_COLUMNS + " FROM chat_messages m " +
+                   "WHERE m.consultation_id = :consultationId AND (m.sent_at, m.id) < (:sentAt, :id) " +
+                   "ORDER BY m.sent_at DESC, m.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<ChatMessageSummary> findBefore(@Param("consultationId") Long consultationId, @Param("sentAt") LocalDateTime sentAt,
+                                        @Param("id") Long id, @Param("limit") int limit);
+
+    @Query(value = "SELECT m.id AS id, m.message_type AS \"messageType\", m.file_url AS \"fileUrl\", " +
+                   "m.file_name AS \"fileName\", m.file_size AS \"fileSize\" " +
+                   "FROM chat_messages m WHERE m.id = :id AND m.consultation_id = :consultationId",
+           nativeQuery = true)
+    Optional<ChatAttachment> findAttachment(@Param("id") Long id, @Param("consultationId") Long consultationId);
+}
@@ -0,0 +1,17 @@
+package com.nadym.telemedicine.repository;
+
+import com.nadym.telemedicine.entity.ChatUnreadCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ChatUnreadCounterRepository extends JpaRepository<ChatUnreadCounter, ChatUnreadCounter.Key> {
+
+    // Everything nobody has read yet that the reader's side did not send
+    @Query(value = "SELECT COALESCE(SUM(GREATEST(c.unread_count, 0)), 0) FROM chat_unread_counters c " +
+                   "WHERE c.consultation_id = :consultationId AND c.sender_type <> :readerType",
+           nativeQuery = true)
+    long countUnread(@Param("consultationId") Long consultationId, @Param("readerType") String readerType);
+}
@@ -0,0 +1,33 @@
+package com.nadym.telemedicine.repository;
+
+import com.nadym.telemedicine.entity.ConsultationFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ConsultationFileRepository extends JpaRepository<ConsultationFile, ConsultationFile.Key> {
+
+    Optional<ConsultationFile> findByConsultationIdAndChecksum(Long consultationId, String checksum);
+
+    boolean existsByChecksum(String checksum);
+
+    // The first upload of a file to a consultation names it; identical uploads racing it change nothing
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO consultation_files (consultation_id, checksum, file_name, content_type, file_size, " +
+                   "uploaded_by, uploaded_at) " +
+                   "VALUES (:consultationId, :checksum, :fileName, :contentType, :fileSize, :uploadedBy, :uploadedAt) " +
+                   "ON CONFLICT (consultation_id, checksum) DO NOTHING",
+           nativeQuery = true)
+    int record(@Param("consultationId") Long consultationId, @Param("checksum") String checksum,
+               @Param("fileName") String fileName, @Param("contentType") String contentType,
+               @Param("fileSize") Long fileSize, @Param("uploadedBy") String uploadedBy,
+               @Param("uploadedAt") LocalDateTime uploadedAt);
+}
@@ -4,6 +4,7 @@ import com.nadym.telemedicine.entity.VideoConsultation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -26,4 +27,20 @@ public interface VideoConsultationRepository extends JpaRepository<VideoConsulta
             @Param("status") VideoConsultation.ConsultationStatus status,
             @Param("start") LocalDateTime start,
             @Param("end") LocalDateTime end);
+
+    // Presence-driven transitions are conditional on the status, so replicas racing to issue them are harmless
+    @Modifying
+    @Query(value = "UPDATE video_consultations SET status = 'IN_PROGRESS', started_at = :startedAt, " +
+                   "updated_at = :startedAt, version = version + 1 " +
+                   "WHERE room_id = :roomId AND status = 'SCHEDULED'",
+           nativeQuery = true)
+    int markStarted(@Param("roomId") String roomId, @Param("startedAt") LocalDateTime startedAt);
+
+    @Modifying
+    @Query(value = "UPDATE video_consultations SET status = 'COMPLETED', ended_at = :endedAt, " +
+                   "updated_at = :endedAt, version = version + 1, " +
+                   "duration_minutes = CAST(FLOOR(EXTRACT(EPOCH FROM (CAST(:endedAt AS timestamp) - started_at)) / 60) AS integer) " +
+                   "WHERE room_id = :roomId AND status = 'IN_PROGRESS' AND started_at IS NOT NULL",
+           nativeQuery = true)
+    int markEnded(@Param("roomId") String roomId, @Param("endedAt") LocalDateTime endedAt);
 }
\ No newline at end of file
@@ -0,0 +1,433 @@
+package com.nadym.telemedicine.service;
+
+import com.nadym.common.exception.ResourceNotFoundException;
+import com.nadym.common.exception.ValidationException;
+import com.nadym.telemedicine.dto.UploadRequestDto;
+import com.nadym.telemedicine.dto.UploadStatusDto;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Local-disk storage for consultation files. Uploads are resumable: a client creates an
+ * upload, then sends the bytes in chunks that must start where the stored part ends, and
+ * can ask for that offset after an interruption. Chunks go from the request straight into
+ * the part file with FileChannel.transferFrom, and downloads go out with transferTo, so a
+ * transfer holds one fixed-size buffer at most whatever the file size.
+ *
+ * A completed upload is stored under the SHA-256 of its content: an identical file uploaded
+ * again is discarded and resolves to the blob already there. Which consultations may read a
+ * blob is recorded by {@link ConsultationFileService}, not here: a completed upload keeps its
+ * metadata, marked with the checksum, until the caller has recorded it and calls
+ * {@link #finishUpload}, so a failed record can be retried from the upload's status.
+ */
+@Component
+public class BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("[0-9a-f]{32}");
+    private static final Pattern CHECKSUM = Pattern.compile("[0-9a-f]{64}");
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    @Value("${telemedicine.storage.root:./data/files}")
+    private String rootDirectory;
+
+    @Value("${telemedicine.storage.max-file-size-bytes:4294967296}")
+    private long maxFileSize;
+
+    @Value("${telemedicine.storage.upload-expiry-hours:24}")
+    private long uploadExpiryHours;
+
+    @Value("${telemedicine.storage.buffer-bytes:65536}")
+    private int bufferBytes;
+
+    private Path uploads;
+    private Path blobs;
+
+    @PostConstruct
+    void init() throws IOException {
+        Path root = Paths.get(rootDirectory).toAbsolutePath().normalize();
+        uploads = Files.createDirectories(root.resolve("uploads"));
+        blobs = Files.createDirectories(root.resolve("blobs"));
+        log.info("Storing consultation files under {}", root);
+    }
+
+    public UploadStatusDto createUpload(UploadRequestDto request, String owner) {
+        if (request.getSize() > maxFileSize) {
+            throw new ValidationException("Files are limited to " + maxFileSize + " bytes");
+        }
+
+        String uploadId = UUID.randomUUID().toString().replace("-", "");
+        Properties meta = new Properties();
+        meta.setProperty("roomId", request.getRoomId());
+        meta.setProperty("fileName", request.getFileName());
+        meta.setProperty("contentType", request.getContentType() != null ? request.getContentType() : DEFAULT_CONTENT_TYPE);
+        meta.setProperty("size", Long.toString(request.getSize()));
+        meta.setProperty("owner", owner);
+        try {
+            Files.createFile(partPath(uploadId));
+            writeMeta(metaPath(uploadId), meta);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create upload", e);
+        }
+        return status(uploadId, meta, 0);
+    }
+
+    /**
+     * The upload's progress. An upload whose bytes are all there but that failed to complete
+     * is completed here, so the client can finish it by asking.
+     */
+    public UploadStatusDto getUpload(String uploadId, String owner) {
+        Properties meta = readUpload(uploadId, owner);
+        if (meta.getProperty("checksum") != null) {
+            return completed(uploadId, meta);
+        }
+        long size = Long.parseLong(meta.getProperty("size"));
+        try (FileChannel part = FileChannel.open(partPath(uploadId), StandardOpenOption.WRITE)) {
+            long offset = part.size();
+            if (offset < size) {
+                return status(uploadId, meta, offset);
+            }
+            FileLock lock = tryLock(part);
+            if (lock == null) {
+                return status(uploadId, meta, offset);
+            }
+            try (lock) {
+                return complete(uploadId, meta);
+            }
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("Upload not found: " + uploadId);
+        }
+    }
+
+    /**
+     * Appends {@code length} bytes read from {@code body} at {@code start}, which must be the
+     * current offset. A chunk cut short is kept as far as it got; the client resumes from
+     * the offset returned. The upload completes when the last byte is written.
+     */
+    public UploadStatusDto appendChunk(String uploadId, String owner, long start, long length, InputStream body) {
+        Properties meta = readUpload(uploadId, owner);
+        if (meta.getProperty("checksum") != null) {
+            return completed(uploadId, meta);
+        }
+        long size = Long.parseLong(meta.getProperty("size"));
+        if (start + length > size) {
+            throw new ValidationException("Chunk ends past the declared file size of " + size + " bytes");
+        }
+
+        try (FileChannel part = FileChannel.open(partPath(uploadId), StandardOpenOption.WRITE)) {
+            // Guards against two requests writing the same upload, on this replica or another sharing the disk
+            FileLock lock = tryLock(part);
+            if (lock == null) {
+                throw new ValidationException("Another chunk of upload " + uploadId + " is being written");
+            }
+            try (lock) {
+                long offset = part.size();
+                if (start != offset) {
+                    throw new ValidationException("Chunk starts at " + start + " but upload " + uploadId + " is at " + offset);
+                }
+                ReadableByteChannel source = Channels.newChannel(body);
+                while (offset < start + length) {
+                    long transferred = part.transferFrom(source, offset, start + length - offset);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    offset += transferred;
+                }
+                part.force(false);
+                // Completing under the lock keeps a late duplicate chunk from racing the move
+                return offset < size ? status(uploadId, meta, offset) : complete(uploadId, meta);
+            }
+        } catch (IOException e) {
+            // Whatever reached the disk stays; the client asks for the offset and resumes
+            log.debug("Chunk of upload {} interrupted: {}", uploadId, e.getMessage());
+            return getUpload(uploadId, owner);
+        }
+    }
+
+    // Drops a completed upload once its blob has been recorded
+    public void finishUpload(String uploadId, String owner) {
+        readUpload(uploadId, owner);
+        deleteQuietly(metaPath(uploadId));
+    }
+
+    public void deleteUpload(String uploadId, String owner) {
+        readUpload(uploadId, owner);
+        deleteQuietly(partPath(uploadId));
+        deleteQuietly(metaPath(uploadId));
+    }
+
+    public Blob getBlob(String checksum) {
+        if (!CHECKSUM.matcher(checksum).matches()) {
+            throw new ResourceNotFoundException("File not found: " + checksum);
+        }
+        Path path = blobPath(checksum);
+        try {
+            Properties meta = readMeta(metaPath(path));
+            return new Blob(checksum, path, Files.size(path), meta.getProperty("contentType", DEFAULT_CONTENT_TYPE));
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("File not found: " + checksum);
+        }
+    }
+
+    // Copies [position, position + count) of the blob; the JDK moves it through one bounded buffer
+    public void transfer(Blob blob, long position, long count, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(blob.path, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long end = position + count;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    throw new IOException("Blob " + blob.checksum + " is shorter than expected");
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${telemedicine.storage.cleanup-interval-ms:3600000}")
+    public void deleteExpiredUploads() {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(uploadExpiryHours));
+        int deleted = 0;
+        // Keyed by the metadata, which a completed upload keeps after its part is gone
+        try (DirectoryStream<Path> metas = Files.newDirectoryStream(uploads, "*.meta")) {
+            for (Path meta : metas) {
+                String uploadId = meta.getFileName().toString().replace(".meta", "");
+                Path part = partPath(uploadId);
+                Path touched = Files.exists(part) ? part : meta;
+                if (Files.getLastModifiedTime(touched).toInstant().isBefore(cutoff)) {
+                    deleteQuietly(part);
+                    deleteQuietly(meta);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not clean up expired uploads: {}", e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} uploads idle for more than {} hours", deleted, uploadExpiryHours);
+        }
+    }
+
+    /**
+     * Deletes blobs older than the upload expiry that {@code referenced} does not know. A
+     * completion reusing a blob touches it first, so a blob an upload still has to record
+     * is never old enough to go.
+     */
+    public int deleteUnreferencedBlobs(Predicate<String> referenced) {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(uploadExpiryHours));
+        int deleted = 0;
+        try (Stream<Path> paths = Files.walk(blobs, 3)) {
+            Iterator<Path> files = paths.iterator();
+            while (files.hasNext()) {
+                Path blob = files.next();
+                String checksum = blob.getFileName().toString();
+                if (!CHECKSUM.matcher(checksum).matches() || !Files.isRegularFile(blob)
+                        || !Files.getLastModifiedTime(blob).toInstant().isBefore(cutoff) || referenced.test(checksum)) {
+                    continue;
+                }
+                // The blob goes first, so it is never visible without its metadata
+                deleteQuietly(blob);
+                deleteQuietly(metaPath(blob));
+                deleted++;
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Could not clean up unreferenced blobs: {}", e.getMessage());
+        }
+        return deleted;
+    }
+
+    private UploadStatusDto complete(String uploadId, Properties meta) {
+        Path part = partPath(uploadId);
+        String checksum = sha256(part);
+        Path blob = blobPath(checksum);
+        try {
+            Files.createDirectories(blob.getParent());
+            if (Files.exists(blob)) {
+                Files.setLastModifiedTime(blob, FileTime.from(Instant.now()));
+            } else {
+                // Metadata first, so a blob is never visible without it
+                Properties blobMeta = new Properties();
+                blobMeta.setProperty("contentType", meta.getProperty("contentType"));
+                writeMeta(metaPath(blob), blobMeta);
+                try {
+                    Files.move(part, blob, StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    // The same content completed concurrently under another upload: its blob is ours too
+                    if (!Files.exists(blob)) {
+                        throw e;
+                    }
+                }
+            }
+            // The metadata stays, marked complete, until the caller has recorded the blob
+            meta.setProperty("checksum", checksum);
+            writeMeta(metaPath(uploadId), meta);
+            Files.deleteIfExists(part);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store completed upload " + uploadId, e);
+        }
+        return completed(uploadId, meta);
+    }
+
+    private static UploadStatusDto completed(String uploadId, Properties meta) {
+        UploadStatusDto status = status(uploadId, meta, Long.parseLong(meta.getProperty("size")));
+        status.setComplete(true);
+        status.setChecksum(meta.getProperty("checksum"));
+        return status;
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    private String sha256(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bufferBytes);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not checksum " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private Properties readUpload(String uploadId, String owner) {
+        if (uploadId == null || !UPLOAD_ID.matcher(uploadId).matches()) {
+            throw new ResourceNotFoundException("Upload not found: " + uploadId);
+        }
+        Properties meta;
+        try {
+            meta = readMeta(metaPath(uploadId));
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("Upload not found: " + uploadId);
+        }
+        if (!meta.getProperty("owner").equals(owner)) {
+            throw new ResourceNotFoundException("Upload not found: " + uploadId);
+        }
+        return meta;
+    }
+
+    private static UploadStatusDto status(String uploadId, Properties meta, long offset) {
+        UploadStatusDto status = new UploadStatusDto();
+        status.setUploadId(uploadId);
+        status.setRoomId(meta.getProperty("roomId"));
+        status.setFileName(meta.getProperty("fileName"));
+        status.setContentType(meta.getProperty("contentType"));
+        status.setSize(Long.parseLong(meta.getProperty("size")));
+        status.setOffset(offset);
+        return status;
+    }
+
+    private Path partPath(String uploadId) {
+        return uploads.resolve(uploadId + ".part");
+    }
+
+    private Path metaPath(String uploadId) {
+        return uploads.resolve(uploadId + ".meta");
+    }
+
+    // Two levels of fan-out keep directories small
+    private Path blobPath(String checksum) {
+        return blobs.resolve(checksum.substring(0, 2)).resolve(checksum.substring(2, 4)).resolve(checksum);
+    }
+
+    private static Path metaPath(Path blob) {
+        return blob.resolveSibling(blob.getFileName() + ".meta");
+    }
+
+    private static Properties readMeta(Path path) throws IOException {
+        Properties meta = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            meta.load(reader);
+        }
+        return meta;
+    }
+
+    // A temp name of its own per write, so concurrent writers of the same metadata never share one
+    private static void writeMeta(Path path, Properties meta) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                meta.store(writer, null);
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}: {}", path, e.getMessage());
+        }
+    }
+
+    public static class Blob {
+
+        private final String checksum;
+        private final Path path;
+        private final long size;
+        private final String contentType;
+
+        Blob(String checksum, Path path, long size, String contentType) {
+            this.checksum = checksum;
+            this.path = path;
+            this.size = size;
+            this.contentType = contentType;
+        }
+
+        public String getChecksum() { return checksum; }
+        public long getSize() { return size; }
+        public String getContentType() { return contentType; }
+    }
+}
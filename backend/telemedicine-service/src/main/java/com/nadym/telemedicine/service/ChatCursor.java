@@ -0,0 +1,46 @@
+package com.nadym.telemedicine.service;
+
+import com.nadym.common.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in the newest-first (sentAt, id) ordering of a consultation's messages, exchanged
+ * with clients as an opaque URL-safe token.
+ */
+final class ChatCursor {
+
+    private final LocalDateTime sentAt;
+    private final Long id;
+
+    ChatCursor(LocalDateTime sentAt, Long id) {
+        this.sentAt = sentAt;
+        this.id = id;
+    }
+
+    LocalDateTime getSentAt() { return sentAt; }
+
+    Long getId() { return id; }
+
+    String encode() {
+        String raw = id + ":" + sentAt;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Null for the first page
+    static ChatCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            return new ChatCursor(LocalDateTime.parse(raw.substring(separator + 1)), Long.parseLong(raw.substring(0, separator)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new ValidationException("Invalid pagination cursor");
+        }
+    }
+}
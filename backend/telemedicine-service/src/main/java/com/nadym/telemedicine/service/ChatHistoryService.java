@@ -0,0 +1,55 @@
+package com.nadym.telemedicine.service;
+
+import com.nadym.common.dto.CursorPage;
+import com.nadym.common.exception.ResourceNotFoundException;
+import com.nadym.telemedicine.projection.ChatAttachment;
+import com.nadym.telemedicine.projection.ChatMessageSummary;
+import com.nadym.telemedicine.repository.ChatMessageRepository;
+import com.nadym.telemedicine.repository.ChatUnreadCounterRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@Transactional
+public class ChatHistoryService {
+
+    @Autowired
+    private ChatRoomDirectory roomDirectory;
+
+    @Autowired
+    private ChatMessageRepository chatMessageRepository;
+
+    @Autowired
+    private ChatUnreadCounterRepository unreadCounterRepository;
+
+    public CursorPage<ChatMessageSummary> getHistory(String roomId, JwtAuthenticationToken authentication, String cursor, int size) {
+        Long consultationId = roomDirectory.authorize(roomId, authentication).getRoom().getConsultationId();
+        ChatCursor before = ChatCursor.decode(cursor);
+        // One extra row tells whether another page follows
+        List<ChatMessageSummary> rows = before == null
+                ? chatMessageRepository.findLatest(consultationId, size + 1)
+                : chatMessageRepository.findBefore(consultationId, before.getSentAt(), before.getId(), size + 1);
+
+        if (rows.size() <= size) {
+            return new CursorPage<>(rows, size, null);
+        }
+        List<ChatMessageSummary> content = rows.subList(0, size);
+        ChatMessageSummary last = content.get(size - 1);
+        return new CursorPage<>(content, size, new ChatCursor(last.getSentAt(), last.getId()).encode());
+    }
+
+    public ChatAttachment getAttachment(String roomId, JwtAuthenticationToken authentication, Long messageId) {
+        Long consultationId = roomDirectory.authorize(roomId, authentication).getRoom().getConsultationId();
+        return chatMessageRepository.findAttachment(messageId, consultationId)
+                .orElseThrow(() -> new ResourceNotFoundException("Chat message not found with id: " + messageId));
+    }
+
+    public long getUnreadCount(String roomId, JwtAuthenticationToken authentication) {
+        ChatRoomDirectory.Participant participant = roomDirectory.authorize(roomId, authentication);
+        return unreadCounterRepository.countUnread(participant.getRoom().getConsultationId(), participant.getSenderType().name());
+    }
+}
@@ -0,0 +1,61 @@
+package com.nadym.telemedicine.service;
+
+import com.nadym.telemedicine.entity.ChatMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Hands out chat message ids before the row is written, so a message can be broadcast with
+ * its id while its insert is still queued. Ids come from the same pooled sequence Hibernate
+ * uses for ChatMessage, with the same pooled-lo reading of each value, and several blocks are
+ * reserved per round-trip.
+ */
+@Component
+class ChatIdAllocator {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${telemedicine.chat.id-blocks-per-fetch:4}")
+    private int blocksPerFetch;
+
+    private String sequence;
+    private int blockSize;
+
+    private final Deque<Long> blocks = new ArrayDeque<>();
+    private long next;
+    private long blockEnd;
+
+    @PostConstruct
+    void init() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        SequenceStyleGenerator generator = (SequenceStyleGenerator) sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(ChatMessage.class).getGenerator();
+        sequence = generator.getDatabaseStructure().getPhysicalName().render();
+        blockSize = generator.getDatabaseStructure().getIncrementSize();
+    }
+
+    synchronized long next() {
+        if (next == blockEnd) {
+            if (blocks.isEmpty()) {
+                blocks.addAll(jdbcTemplate.queryForList(
+                        "SELECT nextval('" + sequence + "') FROM generate_series(1, ?)", Long.class, blocksPerFetch));
+            }
+            next = blocks.poll();
+            blockEnd = next + blockSize;
+        }
+        return next++;
+    }
+}
@@ -0,0 +1,292 @@
+package com.nadym.telemedicine.service;
+
+import com.nadym.telemedicine.dto.ChatMessageDto;
+import com.nadym.telemedicine.entity.ChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for chat. Messages are queued as they are sent, before they are
+ * broadcast, and a single writer thread inserts whatever has accumulated every few
+ * milliseconds as one JDBC batch, together with the unread counters it affects. Read receipts
+ * are coalesced per reader in between, so a burst of receipts costs one set-based UPDATE per
+ * reader and flush. A failed batch is retried on the next flush unless the database rejected
+ * its content.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+class ChatMessageWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatMessageWriter.class);
+
+    private static final String INSERT_SQL = "INSERT INTO chat_messages (id, consultation_id, sender_id, sender_type, " +
+            "content, message_type, sent_at, file_url, file_name, file_size, created_at, updated_at, created_by, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String COUNT_UNREAD_SQL = "INSERT INTO chat_unread_counters (consultation_id, sender_type, unread_count) " +
+            "VALUES (?, ?, ?) ON CONFLICT (consultation_id, sender_type) DO UPDATE SET " +
+            "unread_count = chat_unread_counters.unread_count + EXCLUDED.unread_count";
+
+    // Only the rows this statement actually marked read come off the unread counters; ids outside
+    // the reader's consultation are ignored. Counters never go below zero, even for messages
+    // that were never counted
+    private static final String READ_SQL = "WITH r AS (" +
+            "UPDATE chat_messages SET read_at = ? " +
+            "WHERE id = ANY(?) AND consultation_id = ? AND read_at IS NULL AND NOT (sender_id = ? AND sender_type = ?) " +
+            "RETURNING consultation_id, sender_type) " +
+            "UPDATE chat_unread_counters c SET unread_count = GREATEST(0, c.unread_count - d.read_count) " +
+            "FROM (SELECT r.consultation_id, r.sender_type, COUNT(*) AS read_count FROM r " +
+            "GROUP BY r.consultation_id, r.sender_type) d " +
+            "WHERE c.consultation_id = d.consultation_id AND c.sender_type = d.sender_type";
+
+    // Counters start empty on a database that already holds messages
+    private static final String BACKFILL_UNREAD_SQL = "INSERT INTO chat_unread_counters (consultation_id, sender_type, unread_count) " +
+            "SELECT consultation_id, sender_type, COUNT(*) FROM chat_messages WHERE read_at IS NULL " +
+            "GROUP BY consultation_id, sender_type ON CONFLICT DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${telemedicine.chat.persistence.flush-interval-ms:5}")
+    private long flushIntervalMs;
+
+    @Value("${telemedicine.chat.persistence.batch-size:500}")
+    private int batchSize;
+
+    @Value("${telemedicine.chat.persistence.max-pending:100000}")
+    private int maxPending;
+
+    private BlockingQueue<ChatMessageDto> pending;
+
+    // Receipts per consultation and reader since the last flush, stamped with the reader's earliest one
+    private final Map<String, Receipts> receipts = new HashMap<>();
+
+    private final List<ChatMessageDto> retry = new ArrayList<>();
+
+    private ScheduledExecutorService writer;
+
+    private TransactionTemplate transactionTemplate;
+
+    private Counter persisted;
+    private Counter dropped;
+    private Timer flushTimer;
+
+    @PostConstruct
+    void init() {
+        pending = new LinkedBlockingQueue<>(maxPending);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        persisted = Counter.builder("telemedicine.chat.persisted").register(meterRegistry);
+        dropped = Counter.builder("telemedicine.chat.dropped").register(meterRegistry);
+        flushTimer = Timer.builder("telemedicine.chat.flush").publishPercentileHistogram().register(meterRegistry);
+        Gauge.builder("telemedicine.chat.pending", pending, BlockingQueue::size).register(meterRegistry);
+
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "chat-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Ahead of the first flush, so the table is only empty when no counter was ever written
+        writer.execute(this::backfillUnreadCounters);
+        writer.scheduleWithFixedDelay(this::flushSafely, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+        int lost = pending.size() + retry.size();
+        if (lost > 0) {
+            log.error("{} chat messages could not be persisted before shutdown", lost);
+        }
+    }
+
+    // False when the queue is full: the caller must refuse the message rather than broadcast it
+    boolean enqueue(ChatMessageDto message) {
+        return pending.offer(message);
+    }
+
+    void markRead(Long consultationId, Collection<Long> messageIds, Long readerId, ChatMessage.SenderType readerType,
+                  LocalDateTime readAt) {
+        synchronized (receipts) {
+            receipts.computeIfAbsent(consultationId + ":" + readerType + ":" + readerId,
+                            key -> new Receipts(consultationId, readerId, readerType, readAt))
+                    .messageIds.addAll(messageIds);
+        }
+    }
+
+    private synchronized void backfillUnreadCounters() {
+        try {
+            Integer counters = transactionTemplate.execute(status -> {
+                // Flushes on other replicas wait for the backfill, then add on top of it
+                jdbcTemplate.execute("LOCK TABLE chat_unread_counters IN SHARE ROW EXCLUSIVE MODE");
+                Boolean empty = jdbcTemplate.queryForObject(
+                        "SELECT NOT EXISTS (SELECT 1 FROM chat_unread_counters)", Boolean.class);
+                return Boolean.TRUE.equals(empty) ? jdbcTemplate.update(BACKFILL_UNREAD_SQL) : 0;
+            });
+            if (counters != null && counters > 0) {
+                log.info("Backfilled {} chat unread counters from existing messages", counters);
+            }
+        } catch (Exception e) {
+            log.error("Chat unread counter backfill failed: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Chat persistence flush failed: {}", e.getMessage());
+        }
+    }
+
+    private void flush() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        boolean wrote = false;
+
+        List<ChatMessageDto> batch = new ArrayList<>(retry);
+        retry.clear();
+        do {
+            pending.drainTo(batch, Math.max(0, batchSize - batch.size()));
+            if (batch.isEmpty()) {
+                break;
+            }
+            insert(batch);
+            wrote = true;
+            batch = new ArrayList<>();
+        } while (!pending.isEmpty());
+
+        // Receipts go after the inserts, so a message read right after it was sent is already there
+        List<Receipts> toApply;
+        synchronized (receipts) {
+            toApply = new ArrayList<>(receipts.values());
+            receipts.clear();
+        }
+        for (Receipts reader : toApply) {
+            jdbcTemplate.update(READ_SQL, Timestamp.valueOf(reader.readAt), reader.messageIds.toArray(new Long[0]),
+                    reader.consultationId, reader.readerId, reader.readerType.name());
+            wrote = true;
+        }
+
+        if (wrote) {
+            sample.stop(flushTimer);
+        }
+    }
+
+    private void insert(List<ChatMessageDto> batch) {
+        try {
+            write(batch);
+            persisted.increment(batch.size());
+        } catch (DataIntegrityViolationException e) {
+            // Find the offending rows instead of losing the whole batch; retrying them would fail the same way
+            for (ChatMessageDto message : batch) {
+                try {
+                    write(List.of(message));
+                    persisted.increment();
+                } catch (DataIntegrityViolationException rejected) {
+                    dropped.increment();
+                    log.error("Dropped chat message {} rejected by the database: {}", message.getId(), rejected.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            retry.addAll(batch);
+            throw e;
+        }
+    }
+
+    // The messages and their unread counts commit together
+    private void write(List<ChatMessageDto> batch) {
+        // Sorted, so replicas flushing at the same time lock counter rows in the same order
+        Map<String, Object[]> unread = new TreeMap<>();
+        for (ChatMessageDto message : batch) {
+            Object[] counter = unread.computeIfAbsent(message.getConsultationId() + ":" + message.getSenderType(),
+                    key -> new Object[] { message.getConsultationId(), message.getSenderType().name(), 0L });
+            counter[2] = (long) counter[2] + 1;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            insertRows(batch);
+            jdbcTemplate.batchUpdate(COUNT_UNREAD_SQL, new ArrayList<>(unread.values()));
+        });
+    }
+
+    private void insertRows(List<ChatMessageDto> batch) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (statement, message) -> {
+            statement.setLong(1, message.getId());
+            statement.setLong(2, message.getConsultationId());
+            statement.setLong(3, message.getSenderId());
+            statement.setString(4, message.getSenderType().name());
+            statement.setString(5, message.getContent());
+            statement.setString(6, message.getMessageType().name());
+            statement.setTimestamp(7, Timestamp.valueOf(message.getSentAt()));
+            statement.setString(8, message.getFileUrl());
+            statement.setString(9, message.getFileName());
+            if (message.getFileSize() != null) {
+                statement.setLong(10, message.getFileSize());
+            } else {
+                statement.setNull(10, Types.BIGINT);
+            }
+            statement.setTimestamp(11, now);
+            statement.setTimestamp(12, now);
+            statement.setString(13, message.getSenderType().name() + ":" + message.getSenderId());
+        });
+    }
+
+    private static class Receipts {
+
+        private final Long consultationId;
+        private final Long readerId;
+        private final ChatMessage.SenderType readerType;
+        private final LocalDateTime readAt;
+        private final Set<Long> messageIds = new HashSet<>();
+
+        Receipts(Long consultationId, Long readerId, ChatMessage.SenderType readerType, LocalDateTime readAt) {
+            this.consultationId = consultationId;
+            this.readerId = readerId;
+            this.readerType = readerType;
+            this.readAt = readAt;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.nadym.telemedicine.service;
+
+import com.nadym.common.exception.ResourceNotFoundException;
+import com.nadym.telemedicine.entity.ChatMessage;
+import com.nadym.telemedicine.entity.VideoConsultation;
+import com.nadym.telemedicine.repository.VideoConsultationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves a room id to its consultation and decides who may take part: the consultation's
+ * doctor and patient, and any nurse. Rooms are cached for a short TTL since participants
+ * never change once a consultation is scheduled.
+ */
+@Component
+public class ChatRoomDirectory {
+
+    @Autowired
+    private VideoConsultationRepository consultationRepository;
+
+    @Value("${telemedicine.rooms.cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${telemedicine.rooms.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final Map<String, Room> rooms = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Room> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    public Room getRoom(String roomId) {
+        long now = System.nanoTime();
+        synchronized (rooms) {
+            Room room = rooms.get(roomId);
+            if (room != null && now - room.loadedAt < TimeUnit.SECONDS.toNanos(ttlSeconds)) {
+                return room;
+            }
+        }
+
+        VideoConsultation consultation = consultationRepository.findByRoomId(roomId)
+                .orElseThrow(() -> new ResourceNotFoundException("Consultation room not found: " + roomId));
+        Room room = new Room(roomId, consultation.getId(), consultation.getDoctorId(), consultation.getPatientId(), now);
+        synchronized (rooms) {
+            rooms.put(roomId, room);
+        }
+        return room;
+    }
+
+    public Participant authorize(String roomId, JwtAuthenticationToken authentication) {
+        Room room = getRoom(roomId);
+        if (hasRole(authentication, "DOCTOR") && room.doctorId.equals(claimAsLong(authentication, "user_id"))) {
+            return new Participant(room, room.doctorId, ChatMessage.SenderType.DOCTOR);
+        }
+        if (hasRole(authentication, "PATIENT") && room.patientId.equals(claimAsLong(authentication, "patient_id"))) {
+            return new Participant(room, room.patientId, ChatMessage.SenderType.PATIENT);
+        }
+        if (hasRole(authentication, "NURSE")) {
+            Long nurseId = claimAsLong(authentication, "user_id");
+            if (nurseId != null) {
+                return new Participant(room, nurseId, ChatMessage.SenderType.NURSE);
+            }
+        }
+        throw new AccessDeniedException("Not a participant of room " + roomId);
+    }
+
+    private static boolean hasRole(JwtAuthenticationToken authentication, String role) {
+        return authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_" + role));
+    }
+
+    // Keycloak mappers emit ids as strings or numbers depending on their configuration
+    private static Long claimAsLong(JwtAuthenticationToken authentication, String claim) {
+        Object value = authentication.getToken().getClaims().get(claim);
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof String string) {
+            try {
+                return Long.valueOf(string);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public static class Room {
+
+        private final String roomId;
+        private final Long consultationId;
+        private final Long doctorId;
+        private final Long patientId;
+        private final long loadedAt;
+
+        Room(String roomId, Long consultationId, Long doctorId, Long patientId, long loadedAt) {
+            this.roomId = roomId;
+            this.consultationId = consultationId;
+            this.doctorId = doctorId;
+            this.patientId = patientId;
+            this.loadedAt = loadedAt;
+        }
+
+        public String getRoomId() { return roomId; }
+        public Long getConsultationId() { return consultationId; }
+        public Long getDoctorId() { return doctorId; }
+        public Long getPatientId() { return patientId; }
+    }
+
+    public static class Participant {
+
+        private final Room room;
+        private final Long userId;
+        private final ChatMessage.SenderType senderType;
+
+        Participant(Room room, Long userId, ChatMessage.SenderType senderType) {
+            this.room = room;
+            this.userId = userId;
+            this.senderType = senderType;
+        }
+
+        public Room getRoom() { return room; }
+        public Long getUserId() { return userId; }
+        public ChatMessage.SenderType getSenderType() { return senderType; }
+    }
+}
@@ -0,0 +1,139 @@
+package com.nadym.telemedicine.service;
+
+import com.nadym.common.exception.ValidationException;
+import com.nadym.telemedicine.dto.ChatEventDto;
+import com.nadym.telemedicine.dto.ChatMessageDto;
+import com.nadym.telemedicine.dto.ReadReceiptDto;
+import com.nadym.telemedicine.entity.ChatMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Consultation chat. A message is given its id, queued for write-behind persistence and
+ * published on the room event bus, which delivers it to the room's subscribers on every
+ * replica; the chat tables are not on the delivery path. Once queued a message is accepted:
+ * if the bus refuses it, subscribers pick it up from the history when they reload.
+ */
+@Service
+public class ChatService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChatService.class);
+
+    public static final String ROOM_TOPIC = "/topic/rooms/";
+
+    @Autowired
+    private ChatRoomDirectory roomDirectory;
+
+    @Autowired
+    private ChatIdAllocator idAllocator;
+
+    @Autowired
+    private ChatMessageWriter messageWriter;
+
+    @Autowired
+    private RoomEventBus roomEventBus;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${telemedicine.chat.max-message-length:4000}")
+    private int maxMessageLength;
+
+    @Value("${telemedicine.chat.max-receipts-per-frame:500}")
+    private int maxReceiptsPerFrame;
+
+    private Counter sent;
+    private Counter undelivered;
+    private Timer delivery;
+
+    @PostConstruct
+    void init() {
+        sent = Counter.builder("telemedicine.chat.messages").register(meterRegistry);
+        undelivered = Counter.builder("telemedicine.chat.undelivered").register(meterRegistry);
+        delivery = Timer.builder("telemedicine.chat.delivery").publishPercentileHistogram().register(meterRegistry);
+    }
+
+    public ChatMessageDto send(String roomId, JwtAuthenticationToken authentication, ChatMessageDto request) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ChatRoomDirectory.Participant participant = roomDirectory.authorize(roomId, authentication);
+
+        if (request.getContent() == null || request.getContent().isBlank()) {
+            throw new ValidationException("Message content is required");
+        }
+        if (request.getContent().length() > maxMessageLength) {
+            throw new ValidationException("Message content is limited to " + maxMessageLength + " characters");
+        }
+
+        if (request.getFileUrl() != null && !ConsultationFileService.isFileUrlOf(roomId, request.getFileUrl())) {
+            throw new ValidationException("Attachments must be files uploaded to this room");
+        }
+
+        ChatMessageDto message = new ChatMessageDto();
+        message.setId(idAllocator.next());
+        message.setConsultationId(participant.getRoom().getConsultationId());
+        message.setRoomId(roomId);
+        message.setSenderId(participant.getUserId());
+        message.setSenderType(participant.getSenderType());
+        message.setContent(request.getContent());
+        message.setMessageType(request.getMessageType() != null ? request.getMessageType() : ChatMessage.MessageType.TEXT);
+        message.setSentAt(LocalDateTime.now());
+        message.setFileUrl(request.getFileUrl());
+        message.setFileName(request.getFileName());
+        message.setFileSize(request.getFileSize());
+
+        if (!messageWriter.enqueue(message)) {
+            throw new ValidationException("Chat is temporarily overloaded, please resend");
+        }
+        sent.increment();
+        // The message is already queued: failing here would make the sender resend it as a duplicate
+        if (!roomEventBus.publish(roomId, RoomEventBus.Kind.CHAT, toJson(ChatEventDto.message(message)))) {
+            undelivered.increment();
+            log.warn("Room event bus refused message {} in room {}; it reaches the room on history reload",
+                    message.getId(), roomId);
+            return message;
+        }
+        sample.stop(delivery);
+        return message;
+    }
+
+    public void markRead(String roomId, JwtAuthenticationToken authentication, ReadReceiptDto receipt) {
+        ChatRoomDirectory.Participant participant = roomDirectory.authorize(roomId, authentication);
+        List<Long> messageIds = receipt.getMessageIds();
+        if (messageIds == null || messageIds.isEmpty()) {
+            return;
+        }
+        if (messageIds.size() > maxReceiptsPerFrame) {
+            throw new ValidationException("At most " + maxReceiptsPerFrame + " messages can be marked read at once");
+        }
+
+        LocalDateTime readAt = LocalDateTime.now();
+        messageWriter.markRead(participant.getRoom().getConsultationId(), messageIds, participant.getUserId(),
+                participant.getSenderType(), readAt);
+        // Receipts are already recorded; if the bus is saturated the other side sees them on reload
+        roomEventBus.publish(roomId, RoomEventBus.Kind.CHAT, toJson(ChatEventDto.read(messageIds, participant.getUserId(), readAt)));
+    }
+
+    private String toJson(ChatEventDto event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize chat event", e);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.nadym.telemedicine.service;
+
+import com.nadym.common.exception.ResourceNotFoundException;
+import com.nadym.common.exception.ValidationException;
+import com.nadym.telemedicine.dto.UploadRequestDto;
+import com.nadym.telemedicine.dto.UploadStatusDto;
+import com.nadym.telemedicine.entity.ConsultationFile;
+import com.nadym.telemedicine.repository.ConsultationFileRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Consultation files on top of {@link BlobStore}. Every upload is made to a room its uploader
+ * takes part in; once complete, the blob is recorded against that room's consultation, and
+ * only that consultation's participants can download it, by room. Uploads are limited to a
+ * list of content types, which are always served as attachments.
+ */
+@Service
+public class ConsultationFileService {
+
+    public static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private static final Logger log = LoggerFactory.getLogger(ConsultationFileService.class);
+
+    private static final Pattern FILE_URL = Pattern.compile("/api/telemedicine/rooms/([^/]+)/files/[0-9a-f]{64}");
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private ChatRoomDirectory roomDirectory;
+
+    @Autowired
+    private ConsultationFileRepository fileRepository;
+
+    @Value("${telemedicine.storage.allowed-content-types:application/pdf,image/png,image/jpeg,image/gif,image/webp," +
+            "audio/mpeg,audio/ogg,audio/wav,audio/webm,video/mp4,video/webm,text/plain,application/octet-stream}")
+    private String allowedContentTypes;
+
+    private Set<String> allowed;
+
+    @PostConstruct
+    void init() {
+        allowed = Arrays.stream(allowedContentTypes.split(","))
+                .map(ConsultationFileService::normalize)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    public static String fileUrl(String roomId, String checksum) {
+        return "/api/telemedicine/rooms/" + roomId + "/files/" + checksum;
+    }
+
+    // A chat attachment may only point at this room's files
+    public static boolean isFileUrlOf(String roomId, String fileUrl) {
+        Matcher matcher = FILE_URL.matcher(fileUrl);
+        return matcher.matches() && matcher.group(1).equals(roomId);
+    }
+
+    public UploadStatusDto createUpload(UploadRequestDto request, JwtAuthenticationToken authentication) {
+        roomDirectory.authorize(request.getRoomId(), authentication);
+        String contentType = normalize(request.getContentType());
+        if (!allowed.contains(contentType)) {
+            throw new ValidationException("Files of type " + contentType + " are not accepted");
+        }
+        request.setContentType(contentType);
+        return blobStore.createUpload(request, authentication.getName());
+    }
+
+    public UploadStatusDto getUpload(String uploadId, JwtAuthenticationToken authentication) {
+        return recordIfComplete(blobStore.getUpload(uploadId, authentication.getName()), authentication);
+    }
+
+    public UploadStatusDto appendChunk(String uploadId, JwtAuthenticationToken authentication, long start, long length,
+                                       InputStream body) {
+        return recordIfComplete(blobStore.appendChunk(uploadId, authentication.getName(), start, length, body), authentication);
+    }
+
+    public void deleteUpload(String uploadId, JwtAuthenticationToken authentication) {
+        blobStore.deleteUpload(uploadId, authentication.getName());
+    }
+
+    public Download getDownload(String roomId, String checksum, JwtAuthenticationToken authentication) {
+        ChatRoomDirectory.Participant participant = roomDirectory.authorize(roomId, authentication);
+        ConsultationFile file = fileRepository.findByConsultationIdAndChecksum(participant.getRoom().getConsultationId(), checksum)
+                .orElseThrow(() -> new ResourceNotFoundException("File not found: " + checksum));
+        // Checked again on the way out, for types recorded before the list was narrowed
+        String contentType = allowed.contains(file.getContentType()) ? file.getContentType() : DEFAULT_CONTENT_TYPE;
+        return new Download(blobStore.getBlob(checksum), file.getFileName(), contentType);
+    }
+
+    private UploadStatusDto recordIfComplete(UploadStatusDto status, JwtAuthenticationToken authentication) {
+        if (!status.isComplete()) {
+            return status;
+        }
+        ChatRoomDirectory.Participant participant = roomDirectory.authorize(status.getRoomId(), authentication);
+        fileRepository.record(participant.getRoom().getConsultationId(), status.getChecksum(), status.getFileName(),
+                status.getContentType(), status.getSize(), authentication.getName(), LocalDateTime.now());
+        // Only now is the upload dropped; until then asking for its status retries the record
+        blobStore.finishUpload(status.getUploadId(), authentication.getName());
+        status.setFileUrl(fileUrl(status.getRoomId(), status.getChecksum()));
+        return status;
+    }
+
+    // Blobs whose upload was never recorded, or was aborted once complete
+    @Scheduled(fixedDelayString = "${telemedicine.storage.cleanup-interval-ms:3600000}")
+    public void deleteOrphanBlobs() {
+        int deleted = blobStore.deleteUnreferencedBlobs(fileRepository::existsByChecksum);
+        if (deleted > 0) {
+            log.info("Deleted {} blobs no consultation file refers to", deleted);
+        }
+    }
+
+    // Parameters such as a charset are dropped: they are not part of what is allowed
+    private static String normalize(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return DEFAULT_CONTENT_TYPE;
+        }
+        int parameters = contentType.indexOf(';');
+        return (parameters >= 0 ? contentType.substring(0, parameters) : contentType).trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static class Download {
+
+        private final BlobStore.Blob blob;
+        private final String fileName;
+        private final String contentType;
+
+        Download(BlobStore.Blob blob, String fileName, String contentType) {
+            this.blob = blob;
+            this.fileName = fileName;
+            this.contentType = contentType;
+        }
+
+        public BlobStore.Blob getBlob() { return blob; }
+        public String getFileName() { return fileName; }
+        public String getContentType() { return contentType; }
+    }
+}
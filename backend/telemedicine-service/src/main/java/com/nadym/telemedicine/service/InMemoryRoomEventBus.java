@@ -0,0 +1,47 @@
+package com.nadym.telemedicine.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+// Single-replica bus for tests and local runs: events never leave the process
+@Component
+@ConditionalOnProperty(name = "telemedicine.bus.type", havingValue = "memory")
+public class InMemoryRoomEventBus implements RoomEventBus {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${telemedicine.bus.subscriber-queue-capacity:10000}")
+    private int subscriberQueueCapacity;
+
+    @Value("${telemedicine.bus.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    private RoomEventDispatcher dispatcher;
+
+    @PostConstruct
+    void init() {
+        dispatcher = new RoomEventDispatcher(subscriberQueueCapacity, dispatchThreads, meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdown();
+    }
+
+    @Override
+    public synchronized boolean publish(String roomId, Kind kind, String json) {
+        dispatcher.dispatch(roomId, kind, json);
+        return true;
+    }
+
+    @Override
+    public Subscription subscribe(RoomEventListener listener) {
+        return dispatcher.subscribe(listener);
+    }
+}
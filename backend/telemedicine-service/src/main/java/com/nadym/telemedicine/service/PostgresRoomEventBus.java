@@ -0,0 +1,300 @@
+package com.nadym.telemedicine.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Room event bus over Postgres LISTEN/NOTIFY, so replicas need no broker besides the database
+ * they already share. All events go through one channel and every replica, the publishing one
+ * included, delivers what it hears. Postgres hands notifications to every listener in commit
+ * order, so all replicas see the events of a room in the same order.
+ *
+ * One publisher thread drains the outbound queue and sends everything it took in a single
+ * statement. A NOTIFY payload is limited to 8000 bytes, so larger events are split into parts
+ * sent in the same transaction, which Postgres delivers contiguously. Events published while
+ * the listening connection is down are lost to this replica.
+ */
+@Component
+@ConditionalOnProperty(name = "telemedicine.bus.type", havingValue = "postgres", matchIfMissing = true)
+public class PostgresRoomEventBus implements RoomEventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(PostgresRoomEventBus.class);
+
+    // At most three UTF-8 bytes per char, which keeps a part and its header under 8000 bytes
+    private static final int PART_CHARS = 2500;
+
+    // Parts are unnested in array order; the ordered subquery keeps the NOTIFYs in that order
+    private static final String NOTIFY_SQL = "SELECT pg_notify(?, s.payload) FROM " +
+            "(SELECT t.payload FROM unnest(CAST(? AS text[])) WITH ORDINALITY AS t(payload, n) ORDER BY t.n) s";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSourceProperties dataSourceProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${telemedicine.bus.channel:nadym_room_events}")
+    private String channel;
+
+    @Value("${telemedicine.bus.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${telemedicine.bus.publish-batch-size:200}")
+    private int publishBatchSize;
+
+    @Value("${telemedicine.bus.subscriber-queue-capacity:10000}")
+    private int subscriberQueueCapacity;
+
+    @Value("${telemedicine.bus.dispatch-threads:4}")
+    private int dispatchThreads;
+
+    @Value("${telemedicine.bus.reconnect-delay-ms:1000}")
+    private long reconnectDelayMs;
+
+    private final String origin = UUID.randomUUID().toString().substring(0, 8);
+    private long sequence;
+
+    private BlockingQueue<String[]> outbound;
+    private RoomEventDispatcher dispatcher;
+
+    // Parts received so far of the event each origin is in the middle of sending
+    private final Map<String, Partial> partials = new HashMap<>();
+
+    private volatile boolean running = true;
+    private Thread publisher;
+    private Thread listener;
+    private volatile Connection listenConnection;
+
+    private Counter published;
+    private Counter received;
+    private Counter reconnects;
+
+    @PostConstruct
+    void init() {
+        outbound = new LinkedBlockingQueue<>(maxPending);
+        dispatcher = new RoomEventDispatcher(subscriberQueueCapacity, dispatchThreads, meterRegistry);
+
+        published = Counter.builder("telemedicine.bus.published").register(meterRegistry);
+        received = Counter.builder("telemedicine.bus.received").register(meterRegistry);
+        reconnects = Counter.builder("telemedicine.bus.reconnects").register(meterRegistry);
+        Gauge.builder("telemedicine.bus.pending", outbound, BlockingQueue::size).register(meterRegistry);
+
+        publisher = new Thread(this::publishLoop, "room-events-publisher");
+        publisher.setDaemon(true);
+        publisher.start();
+        listener = new Thread(this::listenLoop, "room-events-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        publisher.interrupt();
+        listener.interrupt();
+        closeQuietly(listenConnection);
+        dispatcher.shutdown();
+    }
+
+    @Override
+    public boolean publish(String roomId, Kind kind, String json) {
+        return outbound.offer(new String[] { roomId, kind.name(), json });
+    }
+
+    @Override
+    public Subscription subscribe(RoomEventListener listener) {
+        return dispatcher.subscribe(listener);
+    }
+
+    private void publishLoop() {
+        List<String[]> batch = new ArrayList<>(publishBatchSize);
+        while (running) {
+            try {
+                if (batch.isEmpty()) {
+                    batch.add(outbound.take());
+                    outbound.drainTo(batch, publishBatchSize - 1);
+                }
+                List<String> payloads = new ArrayList<>();
+                for (String[] event : batch) {
+                    split(event[0] + "\n" + event[1] + "\n" + event[2], payloads);
+                }
+                jdbcTemplate.query(NOTIFY_SQL, rs -> { }, channel, payloads.toArray(new String[0]));
+                published.increment(batch.size());
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // The batch stays and is sent again once the database is back
+                log.warn("Publishing {} room events failed: {}", batch.size(), e.getMessage());
+                sleep(reconnectDelayMs);
+            }
+        }
+    }
+
+    // Header "origin:sequence:part:total:" in front of each part
+    private void split(String message, List<String> payloads) {
+        long seq = ++sequence;
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        while (start < message.length() || parts.isEmpty()) {
+            int end = Math.min(message.length(), start + PART_CHARS);
+            if (end < message.length() && Character.isHighSurrogate(message.charAt(end - 1))) {
+                end--;
+            }
+            parts.add(message.substring(start, end));
+            start = end;
+        }
+        for (int i = 0; i < parts.size(); i++) {
+            payloads.add(origin + ":" + seq + ":" + i + ":" + parts.size() + ":" + parts.get(i));
+        }
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try {
+                Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                        dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+                listenConnection = connection;
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                log.info("Listening for room events on channel {}", channel);
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(1000);
+                    if (notifications == null || notifications.length == 0) {
+                        // getNotifications does not notice a dead socket while idle
+                        if (!connection.isValid(2)) {
+                            throw new SQLException("Listening connection is no longer valid");
+                        }
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        try {
+                            receive(notification.getParameter());
+                        } catch (RuntimeException e) {
+                            log.warn("Ignoring malformed room event notification: {}", e.getMessage());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                reconnects.increment();
+                log.warn("Room event listener lost its connection, reconnecting: {}", e.getMessage());
+                partials.clear();
+                sleep(reconnectDelayMs);
+            } finally {
+                closeQuietly(listenConnection);
+                listenConnection = null;
+            }
+        }
+    }
+
+    private void receive(String payload) {
+        String[] header = payload.split(":", 5);
+        if (header.length < 5) {
+            throw new IllegalArgumentException("missing header");
+        }
+        String sender = header[0];
+        long seq = Long.parseLong(header[1]);
+        int part = Integer.parseInt(header[2]);
+        int total = Integer.parseInt(header[3]);
+
+        String message;
+        if (total == 1) {
+            message = header[4];
+        } else {
+            Partial partial = partials.get(sender);
+            if (part == 0 || partial == null || partial.seq != seq) {
+                partial = new Partial(seq);
+                partials.put(sender, partial);
+            }
+            if (part != partial.received) {
+                log.warn("Dropping room event {} from {}: part {} arrived out of sequence", seq, sender, part);
+                partials.remove(sender);
+                return;
+            }
+            partial.text.append(header[4]);
+            partial.received++;
+            if (partial.received < total) {
+                return;
+            }
+            partials.remove(sender);
+            message = partial.text.toString();
+        }
+
+        // "roomId\nKIND\njson"
+        int first = message.indexOf('\n');
+        int second = first < 0 ? -1 : message.indexOf('\n', first + 1);
+        if (second < 0) {
+            throw new IllegalArgumentException("missing room id or kind");
+        }
+        Kind kind = Kind.valueOf(message.substring(first + 1, second));
+        received.increment();
+        dispatcher.dispatch(message.substring(0, first), kind, message.substring(second + 1));
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Closing the listening connection failed: {}", e.getMessage());
+        }
+    }
+
+    private static class Partial {
+
+        private final long seq;
+        private final StringBuilder text = new StringBuilder();
+        private int received;
+
+        Partial(long seq) {
+            this.seq = seq;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.nadym.telemedicine.service;
+
+/**
+ * Carries room events between the replicas of this service. An event is published once,
+ * already serialized, and every replica's subscribers receive it, in the same order for all
+ * events of a room. Implementations bound their queues: publishing refuses an event rather
+ * than buffer without limit, and a subscriber that falls behind loses events instead of
+ * stalling the others.
+ */
+public interface RoomEventBus {
+
+    // False when the outbound queue is full; the caller decides whether to retry or refuse
+    boolean publish(String roomId, Kind kind, String json);
+
+    Subscription subscribe(RoomEventListener listener);
+
+    enum Kind {
+        // Forwarded to the room topic on every replica
+        CHAT(true),
+        PRESENCE(true),
+        // Only for the replicas' own bookkeeping and targeted delivery
+        PRESENCE_REFRESH(false),
+        SIGNAL(false);
+
+        private final boolean broadcast;
+
+        Kind(boolean broadcast) {
+            this.broadcast = broadcast;
+        }
+
+        public boolean isBroadcast() {
+            return broadcast;
+        }
+    }
+
+    interface Subscription {
+
+        void cancel();
+    }
+}
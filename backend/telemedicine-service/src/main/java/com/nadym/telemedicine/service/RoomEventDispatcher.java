@@ -0,0 +1,119 @@
+package com.nadym.telemedicine.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local delivery shared by the bus implementations. Each subscriber has a bounded queue that
+ * a small pool drains, one task per subscriber at a time, so each subscriber sees events in
+ * dispatch order and a slow one only ever delays itself.
+ */
+class RoomEventDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomEventDispatcher.class);
+
+    private final int queueCapacity;
+    private final ExecutorService pool;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Counter dropped;
+
+    RoomEventDispatcher(int queueCapacity, int threads, MeterRegistry meterRegistry) {
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "room-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.dropped = Counter.builder("telemedicine.bus.dropped").register(meterRegistry);
+    }
+
+    RoomEventBus.Subscription subscribe(RoomEventListener listener) {
+        Subscriber subscriber = new Subscriber(listener);
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    // Callers must not dispatch concurrently, or subscribers could see different orders
+    void dispatch(String roomId, RoomEventBus.Kind kind, String json) {
+        Event event = new Event(roomId, kind, json);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(event);
+        }
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private class Subscriber implements Runnable {
+
+        private final RoomEventListener listener;
+        private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong overflow = new AtomicLong();
+
+        Subscriber(RoomEventListener listener) {
+            this.listener = listener;
+        }
+
+        void offer(Event event) {
+            if (!queue.offer(event)) {
+                overflow.incrementAndGet();
+                dropped.increment();
+            }
+            if (scheduled.compareAndSet(false, true)) {
+                pool.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                long lost = overflow.getAndSet(0);
+                if (lost > 0) {
+                    listener.onOverflow(lost);
+                }
+                Event event;
+                while ((event = queue.poll()) != null) {
+                    try {
+                        listener.onEvent(event.roomId, event.kind, event.json);
+                    } catch (RuntimeException e) {
+                        log.warn("Room event listener failed on room {}: {}", event.roomId, e.getMessage());
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                // An event offered between the last poll and the reset would otherwise wait for the next one
+                if ((!queue.isEmpty() || overflow.get() > 0) && scheduled.compareAndSet(false, true)) {
+                    pool.execute(this);
+                }
+            }
+        }
+    }
+
+    private static class Event {
+
+        private final String roomId;
+        private final RoomEventBus.Kind kind;
+        private final String json;
+
+        Event(String roomId, RoomEventBus.Kind kind, String json) {
+            this.roomId = roomId;
+            this.kind = kind;
+            this.json = json;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.nadym.telemedicine.service;
+
+public interface RoomEventListener {
+
+    void onEvent(String roomId, RoomEventBus.Kind kind, String json);
+
+    // Called once the listener catches up after events were dropped because it fell behind
+    default void onOverflow(long dropped) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.nadym.telemedicine.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Hands every broadcast room event heard on the bus to this replica's STOMP broker, which fans
+ * it out to the room's local subscribers. Events arrive serialized and are forwarded as is.
+ */
+@Component
+class RoomEventRelay implements RoomEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomEventRelay.class);
+
+    private static final Map<String, Object> JSON_HEADERS = Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON);
+
+    @Autowired
+    private RoomEventBus roomEventBus;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    private RoomEventBus.Subscription subscription;
+
+    @PostConstruct
+    void init() {
+        subscription = roomEventBus.subscribe(this);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscription.cancel();
+    }
+
+    @Override
+    public void onEvent(String roomId, RoomEventBus.Kind kind, String json) {
+        if (!kind.isBroadcast()) {
+            return;
+        }
+        messagingTemplate.convertAndSend(ChatService.ROOM_TOPIC + roomId, json.getBytes(StandardCharsets.UTF_8), JSON_HEADERS);
+    }
+
+    @Override
+    public void onOverflow(long dropped) {
+        log.warn("Room event relay fell behind and dropped {} events", dropped);
+    }
+}
@@ -0,0 +1,123 @@
+package com.nadym.telemedicine.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns room presence into the consultation's start and end. The first participant in marks
+ * the consultation started; once the room has stayed empty for a grace period, long enough to
+ * ride out a reconnect, it is marked ended as of the moment the last participant left. Both
+ * writes run on one background thread, never on the join or signaling path.
+ */
+@Component
+class RoomLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RoomLifecycle.class);
+
+    @Autowired
+    private TelemedicineService telemedicineService;
+
+    @Autowired
+    private RoomPresence presence;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${telemedicine.signaling.end-grace-seconds:60}")
+    private long endGraceSeconds;
+
+    private final Map<String, PendingEnd> pendingEnds = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService executor;
+
+    private Counter started;
+    private Counter ended;
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "room-lifecycle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        started = Counter.builder("telemedicine.rooms.started").register(meterRegistry);
+        ended = Counter.builder("telemedicine.rooms.ended").register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Only the replica the participant joined on writes the start; every replica cancels a pending end
+    void occupied(String roomId, boolean local) {
+        PendingEnd pending = pendingEnds.remove(roomId);
+        if (pending != null) {
+            pending.future.cancel(false);
+        }
+        if (local) {
+            LocalDateTime startedAt = LocalDateTime.now();
+            executor.execute(() -> {
+                try {
+                    if (telemedicineService.markRoomStarted(roomId, startedAt)) {
+                        started.increment();
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Could not mark room {} started: {}", roomId, e.getMessage());
+                }
+            });
+        }
+    }
+
+    // Every replica that sees the room empty schedules the end, so a crashed replica's rooms still close
+    void emptied(String roomId) {
+        PendingEnd pending = new PendingEnd(roomId, LocalDateTime.now());
+        pending.future = executor.schedule(pending, endGraceSeconds, TimeUnit.SECONDS);
+        PendingEnd previous = pendingEnds.put(roomId, pending);
+        if (previous != null) {
+            previous.future.cancel(false);
+        }
+    }
+
+    private class PendingEnd implements Runnable {
+
+        private final String roomId;
+        private final LocalDateTime endedAt;
+        private ScheduledFuture<?> future;
+
+        PendingEnd(String roomId, LocalDateTime endedAt) {
+            this.roomId = roomId;
+            this.endedAt = endedAt;
+        }
+
+        @Override
+        public void run() {
+            pendingEnds.remove(roomId, this);
+            if (!presence.isEmpty(roomId)) {
+                return;
+            }
+            try {
+                if (telemedicineService.markRoomEnded(roomId, endedAt)) {
+                    ended.increment();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not mark room {} ended: {}", roomId, e.getMessage());
+            }
+        }
+    }
+}
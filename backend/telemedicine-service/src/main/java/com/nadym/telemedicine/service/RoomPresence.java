@@ -0,0 +1,278 @@
+package com.nadym.telemedicine.service;
+
+import com.nadym.telemedicine.dto.RoomMemberDto;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Who is connected to which room, on this replica and, as far as the bus has told it, on the
+ * others. Rooms are spread over a fixed array of stripes, each a plain map behind its own
+ * lock: joins and leaves in different rooms rarely contend, and a membership change and the
+ * first-in or last-out answer the caller acts on are decided under the same lock.
+ */
+@Component
+class RoomPresence {
+
+    @Value("${telemedicine.signaling.presence-stripes:64}")
+    private int stripeCount;
+
+    private Stripe[] stripes;
+
+    @PostConstruct
+    void init() {
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    // True when the room was empty before this member
+    boolean join(String roomId, Member member) {
+        Stripe stripe = stripe(roomId);
+        stripe.lock.lock();
+        try {
+            Map<String, Member> room = stripe.rooms.computeIfAbsent(roomId, id -> new LinkedHashMap<>());
+            boolean first = room.isEmpty();
+            room.put(member.info.getSessionId(), member);
+            return first;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // Null when the session was not in the room
+    Departure leave(String roomId, String sessionId) {
+        Stripe stripe = stripe(roomId);
+        stripe.lock.lock();
+        try {
+            Map<String, Member> room = stripe.rooms.get(roomId);
+            Member member = room != null ? room.remove(sessionId) : null;
+            if (member == null) {
+                return null;
+            }
+            stripe.departed.put(roomId + "/" + sessionId, new Departed(member.info.getEpoch(), System.nanoTime()));
+            if (room.isEmpty()) {
+                stripe.rooms.remove(roomId);
+            }
+            return new Departure(roomId, member, room.isEmpty());
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the members another replica reports and marks them seen; true when the room was empty
+     * before. A member reported with an epoch no newer than its last known leave is stale and
+     * ignored, as is an older join of a member already here.
+     */
+    boolean refresh(String roomId, String node, Collection<RoomMemberDto> members, long now) {
+        Stripe stripe = stripe(roomId);
+        stripe.lock.lock();
+        try {
+            Map<String, Member> room = stripe.rooms.computeIfAbsent(roomId, id -> new LinkedHashMap<>());
+            boolean first = room.isEmpty();
+            for (RoomMemberDto info : members) {
+                Departed departed = stripe.departed.get(roomId + "/" + info.getSessionId());
+                if (departed != null && info.getEpoch() <= departed.epoch) {
+                    continue;
+                }
+                Member member = room.get(info.getSessionId());
+                if (member == null || member.info.getEpoch() < info.getEpoch()) {
+                    room.put(info.getSessionId(), new Member(info, node, null, now));
+                } else if (member.info.getEpoch() == info.getEpoch()) {
+                    member.lastSeen = now;
+                }
+            }
+            if (room.isEmpty()) {
+                stripe.rooms.remove(roomId);
+            }
+            return first && !room.isEmpty();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // Drops other replicas' members that have not been refreshed since the cutoff
+    List<Departure> expire(String localNode, long cutoff) {
+        List<Departure> expired = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                Iterator<Map.Entry<String, Map<String, Member>>> rooms = stripe.rooms.entrySet().iterator();
+                while (rooms.hasNext()) {
+                    Map.Entry<String, Map<String, Member>> room = rooms.next();
+                    Iterator<Member> members = room.getValue().values().iterator();
+                    while (members.hasNext()) {
+                        Member member = members.next();
+                        if (!member.node.equals(localNode) && member.lastSeen < cutoff) {
+                            members.remove();
+                            expired.add(new Departure(room.getKey(), member, room.getValue().isEmpty()));
+                        }
+                    }
+                    if (room.getValue().isEmpty()) {
+                        rooms.remove();
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return expired;
+    }
+
+    // Leaves older than the cutoff no longer need to outrank a delayed refresh
+    void forgetDepartures(long cutoff) {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.departed.values().removeIf(departed -> departed.at < cutoff);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    Member find(String roomId, String sessionId) {
+        Stripe stripe = stripe(roomId);
+        stripe.lock.lock();
+        try {
+            Map<String, Member> room = stripe.rooms.get(roomId);
+            return room != null ? room.get(sessionId) : null;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    List<RoomMemberDto> members(String roomId) {
+        Stripe stripe = stripe(roomId);
+        stripe.lock.lock();
+        try {
+            Map<String, Member> room = stripe.rooms.get(roomId);
+            if (room == null) {
+                return Collections.emptyList();
+            }
+            List<RoomMemberDto> members = new ArrayList<>(room.size());
+            for (Member member : room.values()) {
+                members.add(member.info);
+            }
+            return members;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    boolean isEmpty(String roomId) {
+        Stripe stripe = stripe(roomId);
+        stripe.lock.lock();
+        try {
+            return !stripe.rooms.containsKey(roomId);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // A replica's own members by room, for its periodic refresh
+    Map<String, List<RoomMemberDto>> membersOf(String node) {
+        Map<String, List<RoomMemberDto>> byRoom = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (Map.Entry<String, Map<String, Member>> room : stripe.rooms.entrySet()) {
+                    for (Member member : room.getValue().values()) {
+                        if (member.node.equals(node)) {
+                            byRoom.computeIfAbsent(room.getKey(), id -> new ArrayList<>()).add(member.info);
+                        }
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return byRoom;
+    }
+
+    int roomCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                count += stripe.rooms.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    private Stripe stripe(String roomId) {
+        return stripes[(roomId.hashCode() & 0x7fffffff) % stripes.length];
+    }
+
+    private static class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Map<String, Member>> rooms = new HashMap<>();
+        // Last leave per "roomId/sessionId"
+        private final Map<String, Departed> departed = new HashMap<>();
+    }
+
+    private static class Departed {
+
+        private final long epoch;
+        private final long at;
+
+        Departed(long epoch, long at) {
+            this.epoch = epoch;
+            this.at = at;
+        }
+    }
+
+    static class Member {
+
+        private final RoomMemberDto info;
+        private final String node;
+        // Principal name for user destinations; only known for this replica's own sessions
+        private final String userName;
+        // Guarded by the stripe lock
+        private long lastSeen;
+
+        Member(RoomMemberDto info, String node, String userName, long lastSeen) {
+            this.info = info;
+            this.node = node;
+            this.userName = userName;
+            this.lastSeen = lastSeen;
+        }
+
+        RoomMemberDto getInfo() { return info; }
+        String getNode() { return node; }
+        String getUserName() { return userName; }
+    }
+
+    static class Departure {
+
+        private final String roomId;
+        private final Member member;
+        private final boolean roomEmpty;
+
+        Departure(String roomId, Member member, boolean roomEmpty) {
+            this.roomId = roomId;
+            this.member = member;
+            this.roomEmpty = roomEmpty;
+        }
+
+        String getRoomId() { return roomId; }
+        Member getMember() { return member; }
+        boolean isRoomEmpty() { return roomEmpty; }
+    }
+}
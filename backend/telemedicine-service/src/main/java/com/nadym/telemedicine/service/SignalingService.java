@@ -0,0 +1,302 @@
+package com.nadym.telemedicine.service;
+
+import com.nadym.common.exception.ValidationException;
+import com.nadym.telemedicine.dto.PresenceEventDto;
+import com.nadym.telemedicine.dto.RoomMemberDto;
+import com.nadym.telemedicine.dto.SignalDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUser;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Room presence and WebRTC signaling. Presence is held in memory by {@link RoomPresence};
+ * joins, leaves and a periodic refresh of each replica's own members travel over the room
+ * event bus so every replica knows who is in a room and where they are connected. An offer,
+ * answer or ICE candidate goes straight to the recipient's session when it is connected here
+ * and over the bus otherwise; nothing on the signaling path touches a table.
+ *
+ * Dead connections are caught by the STOMP heartbeats, which close the session and so fire a
+ * disconnect. Members of a replica that stops refreshing them are dropped after a TTL. Every
+ * join carries an epoch and every leave is remembered for that TTL, so a refresh snapshot
+ * taken before a leave but delivered after it cannot bring the member back.
+ */
+@Service
+public class SignalingService implements RoomEventListener {
+
+    public static final String SIGNAL_QUEUE = "/queue/signals";
+
+    private static final Logger log = LoggerFactory.getLogger(SignalingService.class);
+
+    @Autowired
+    private ChatRoomDirectory roomDirectory;
+
+    @Autowired
+    private RoomPresence presence;
+
+    @Autowired
+    private RoomLifecycle lifecycle;
+
+    @Autowired
+    private RoomEventBus roomEventBus;
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private SimpUserRegistry userRegistry;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${telemedicine.signaling.max-signal-length:65536}")
+    private int maxSignalLength;
+
+    @Value("${telemedicine.signaling.presence-ttl-ms:35000}")
+    private long presenceTtlMs;
+
+    private final String node = UUID.randomUUID().toString();
+
+    private final AtomicLong epochs = new AtomicLong();
+
+    // Rooms each local session has joined, to clean up after a disconnect
+    private final Map<String, Set<String>> sessionRooms = new ConcurrentHashMap<>();
+
+    private RoomEventBus.Subscription subscription;
+
+    private Counter relayedLocal;
+    private Counter relayedRemote;
+    private Counter expired;
+
+    @PostConstruct
+    void init() {
+        relayedLocal = Counter.builder("telemedicine.signaling.relayed").tag("route", "local").register(meterRegistry);
+        relayedRemote = Counter.builder("telemedicine.signaling.relayed").tag("route", "bus").register(meterRegistry);
+        expired = Counter.builder("telemedicine.signaling.expired").register(meterRegistry);
+        Gauge.builder("telemedicine.signaling.rooms", presence, RoomPresence::roomCount).register(meterRegistry);
+        subscription = roomEventBus.subscribe(this);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        subscription.cancel();
+    }
+
+    public PresenceEventDto join(String roomId, String sessionId, JwtAuthenticationToken authentication) {
+        ChatRoomDirectory.Participant participant = roomDirectory.authorize(roomId, authentication);
+
+        RoomPresence.Member existing = presence.find(roomId, sessionId);
+        if (existing != null) {
+            return PresenceEventDto.snapshot(existing.getInfo(), presence.members(roomId));
+        }
+
+        RoomMemberDto member = new RoomMemberDto(sessionId, participant.getUserId(), participant.getSenderType(),
+                LocalDateTime.now(), epochs.incrementAndGet());
+        boolean first = presence.join(roomId, new RoomPresence.Member(member, node, authentication.getName(), System.nanoTime()));
+        sessionRooms.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet()).add(roomId);
+        if (first) {
+            lifecycle.occupied(roomId, true);
+        }
+        publish(roomId, RoomEventBus.Kind.PRESENCE, PresenceEventDto.joined(node, member));
+        return PresenceEventDto.snapshot(member, presence.members(roomId));
+    }
+
+    public void leave(String roomId, String sessionId) {
+        Set<String> rooms = sessionRooms.get(sessionId);
+        if (rooms != null) {
+            rooms.remove(roomId);
+        }
+        depart(presence.leave(roomId, sessionId));
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Set<String> rooms = sessionRooms.remove(event.getSessionId());
+        if (rooms == null) {
+            return;
+        }
+        for (String roomId : rooms) {
+            depart(presence.leave(roomId, event.getSessionId()));
+        }
+    }
+
+    public void signal(String roomId, String sessionId, SignalDto signal) {
+        if (signal.getType() == null || signal.getTo() == null) {
+            throw new ValidationException("Signal type and recipient are required");
+        }
+        if (presence.find(roomId, sessionId) == null) {
+            throw new ValidationException("Join room " + roomId + " before signaling");
+        }
+        if (signal.getTo().equals(sessionId)) {
+            throw new ValidationException("Cannot signal your own session");
+        }
+        RoomPresence.Member recipient = presence.find(roomId, signal.getTo());
+        if (recipient == null) {
+            throw new ValidationException("Recipient is not in room " + roomId);
+        }
+
+        signal.setFrom(sessionId);
+        String json = toJson(signal);
+        if (json.length() > maxSignalLength) {
+            throw new ValidationException("Signals are limited to " + maxSignalLength + " characters");
+        }
+
+        if (node.equals(recipient.getNode())) {
+            deliver(recipient, json);
+            relayedLocal.increment();
+            return;
+        }
+        if (!roomEventBus.publish(roomId, RoomEventBus.Kind.SIGNAL, json)) {
+            throw new ValidationException("Signaling is temporarily overloaded, please resend");
+        }
+        relayedRemote.increment();
+    }
+
+    @Override
+    public void onEvent(String roomId, RoomEventBus.Kind kind, String json) {
+        switch (kind) {
+            case PRESENCE, PRESENCE_REFRESH -> onPresence(roomId, fromJson(json, PresenceEventDto.class));
+            case SIGNAL -> {
+                RoomPresence.Member recipient = presence.find(roomId, fromJson(json, SignalDto.class).getTo());
+                if (recipient != null && node.equals(recipient.getNode())) {
+                    deliver(recipient, json);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    @Override
+    public void onOverflow(long dropped) {
+        // Lost presence events are repaired by the next refresh or by expiry
+        log.warn("Signaling fell behind and dropped {} room events", dropped);
+    }
+
+    @Scheduled(fixedDelayString = "${telemedicine.signaling.refresh-ms:10000}")
+    public void refresh() {
+        for (Map.Entry<String, List<RoomMemberDto>> room : presence.membersOf(node).entrySet()) {
+            publish(room.getKey(), RoomEventBus.Kind.PRESENCE_REFRESH, PresenceEventDto.refresh(node, room.getValue()));
+        }
+
+        long cutoff = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(presenceTtlMs);
+        // A snapshot still on the bus after a TTL would have been expired anyway
+        presence.forgetDepartures(cutoff);
+        for (RoomPresence.Departure departure : presence.expire(node, cutoff)) {
+            expired.increment();
+            // Every replica expires the member on its own, so each tells only its local subscribers
+            messagingTemplate.convertAndSend(ChatService.ROOM_TOPIC + departure.getRoomId(),
+                    toJson(PresenceEventDto.left(departure.getMember().getNode(), departure.getMember().getInfo()))
+                            .getBytes(StandardCharsets.UTF_8),
+                    Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON));
+            if (departure.isRoomEmpty()) {
+                lifecycle.emptied(departure.getRoomId());
+            }
+        }
+    }
+
+    private void onPresence(String roomId, PresenceEventDto event) {
+        // This replica applied its own changes before publishing them
+        if (node.equals(event.getNode())) {
+            return;
+        }
+        switch (event.getType()) {
+            case JOINED -> {
+                if (presence.refresh(roomId, event.getNode(), List.of(event.getMember()), System.nanoTime())) {
+                    lifecycle.occupied(roomId, false);
+                }
+            }
+            case REFRESH -> {
+                if (presence.refresh(roomId, event.getNode(), event.getMembers(), System.nanoTime())) {
+                    lifecycle.occupied(roomId, false);
+                }
+            }
+            case LEFT -> {
+                RoomPresence.Departure departure = presence.leave(roomId, event.getMember().getSessionId());
+                if (departure != null && departure.isRoomEmpty()) {
+                    lifecycle.emptied(roomId);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private void depart(RoomPresence.Departure departure) {
+        if (departure == null) {
+            return;
+        }
+        publish(departure.getRoomId(), RoomEventBus.Kind.PRESENCE, PresenceEventDto.left(node, departure.getMember().getInfo()));
+        if (departure.isRoomEmpty()) {
+            lifecycle.emptied(departure.getRoomId());
+        }
+    }
+
+    private void deliver(RoomPresence.Member recipient, String json) {
+        String sessionId = recipient.getInfo().getSessionId();
+        // Given a session that is gone, the user destination resolver would fall back to all the user's sessions
+        SimpUser user = userRegistry.getUser(recipient.getUserName());
+        if (user == null || user.getSession(sessionId) == null) {
+            return;
+        }
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(sessionId);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(recipient.getUserName(), SIGNAL_QUEUE,
+                json.getBytes(StandardCharsets.UTF_8), headers.getMessageHeaders());
+    }
+
+    // Presence on the bus is best effort: a refused event is made up for by the next refresh or by expiry
+    private void publish(String roomId, RoomEventBus.Kind kind, PresenceEventDto event) {
+        if (!roomEventBus.publish(roomId, kind, toJson(event))) {
+            log.warn("Room event bus is full, dropped {} for room {}", event.getType(), roomId);
+        }
+    }
+
+    private String toJson(Object event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize signaling event", e);
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed signaling event: " + e.getMessage(), e);
+        }
+    }
+}
@@ -65,6 +65,16 @@ public class TelemedicineService {
         return consultationRepository.save(consultation);
     }
 
+    // Driven by room presence: a no-op unless the consultation is still scheduled
+    public boolean markRoomStarted(String roomId, LocalDateTime startedAt) {
+        return consultationRepository.markStarted(roomId, startedAt) > 0;
+    }
+
+    // Driven by room presence: a no-op unless the consultation is in progress
+    public boolean markRoomEnded(String roomId, LocalDateTime endedAt) {
+        return consultationRepository.markEnded(roomId, endedAt) > 0;
+    }
+
     public VideoConsultation cancelConsultation(Long consultationId, String reason) {
         VideoConsultation consultation = getConsultationById(consultationId);
         consultation.setStatus(VideoConsultation.ConsultationStatus.CANCELLED);
@@ -3,9 +3,11 @@ package com.nadym.transcription;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(scanBasePackages = {"com.nadym.transcription", "com.nadym.common"})
 @EnableJpaAuditing
+@EnableScheduling
 public class TranscriptionServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,276 @@
+package com.nadym.transcription.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.theokanning.openai.OpenAiHttpException;
+import com.theokanning.openai.client.OpenAiApi;
+import com.theokanning.openai.completion.chat.ChatCompletionChunk;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import com.theokanning.openai.service.OpenAiService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.reactivex.Flowable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import retrofit2.converter.jackson.JacksonConverterFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Shared entry point to the OpenAI API. Every call goes through client-side token buckets for
+ * requests/min and tokens/min, a circuit breaker, and retries with jittered exponential backoff
+ * on 429, 5xx, I/O errors and timeouts, until the caller's deadline. Latency is recorded per
+ * outcome as a histogram.
+ */
+@Component
+public class OpenAiClient {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAiClient.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${openai.api-key}")
+    private String apiKey;
+
+    // Point at a local fake server to run without the real API
+    @Value("${openai.base-url:https://api.openai.com/}")
+    private String baseUrl;
+
+    @Value("${openai.timeout-seconds:30}")
+    private long timeoutSeconds;
+
+    @Value("${openai.rate-limit.requests-per-minute:500}")
+    private long requestsPerMinute;
+
+    @Value("${openai.rate-limit.tokens-per-minute:90000}")
+    private long tokensPerMinute;
+
+    @Value("${openai.retry.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${openai.retry.initial-backoff-ms:500}")
+    private long initialBackoffMs;
+
+    @Value("${openai.retry.max-backoff-ms:8000}")
+    private long maxBackoffMs;
+
+    @Value("${openai.circuit-breaker.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${openai.circuit-breaker.open-seconds:30}")
+    private long openSeconds;
+
+    private OpenAiService openAiService;
+
+    private TokenBucket requestBucket;
+    private TokenBucket tokenBucket;
+    private CircuitBreaker circuitBreaker;
+
+    private Counter retries;
+    private Counter rejected;
+
+    @PostConstruct
+    void init() {
+        if (!apiKey.equals("your-api-key-here")) {
+            openAiService = createService();
+        }
+
+        requestBucket = new TokenBucket(requestsPerMinute);
+        tokenBucket = new TokenBucket(tokensPerMinute);
+        circuitBreaker = new CircuitBreaker(failureThreshold, TimeUnit.SECONDS.toMillis(openSeconds));
+
+        retries = Counter.builder("openai.retries").register(meterRegistry);
+        rejected = Counter.builder("openai.rejected").register(meterRegistry);
+        Gauge.builder("openai.circuit.open", circuitBreaker, breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
+        Gauge.builder("openai.rate-limit.requests-per-minute", requestBucket, TokenBucket::currentPerMinute)
+                .register(meterRegistry);
+        Gauge.builder("openai.rate-limit.tokens-per-minute", tokenBucket, TokenBucket::currentPerMinute)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (openAiService != null) {
+            openAiService.shutdownExecutor();
+        }
+    }
+
+    public boolean isConfigured() {
+        return openAiService != null;
+    }
+
+    // The deadline is a System.nanoTime() value; no retry starts once it would be passed
+    public ChatCompletionResult createChatCompletion(ChatCompletionRequest request, long deadline) {
+        long estimatedTokens = estimateTokens(request);
+
+        for (int attempt = 1; ; attempt++) {
+            acquire(estimatedTokens, deadline);
+            Timer.Sample sample = Timer.start(meterRegistry);
+            try {
+                ChatCompletionResult result = openAiService.createChatCompletion(request);
+                sample.stop(timer(request, "success"));
+                onSuccess();
+                if (result.getUsage() != null) {
+                    tokenBucket.adjust(estimatedTokens - result.getUsage().getTotalTokens());
+                }
+                return result;
+            } catch (RuntimeException e) {
+                sample.stop(timer(request, "error"));
+                if (!isRetryable(e)) {
+                    // The API answered, so it is up even if this request was refused
+                    circuitBreaker.onSuccess();
+                    throw e;
+                }
+                onFailure(e);
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                long backoff = backoffMillis(attempt);
+                if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoff) - deadline >= 0) {
+                    throw e;
+                }
+                retries.increment();
+                log.debug("OpenAI call failed ({}), retry {} in {} ms", e.getMessage(), attempt, backoff);
+                sleep(backoff);
+            }
+        }
+    }
+
+    // Streams are not retried: once deltas have been forwarded a replay would duplicate them
+    public Flowable<ChatCompletionChunk> streamChatCompletion(ChatCompletionRequest request) {
+        acquire(estimateTokens(request), System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return openAiService.streamChatCompletion(request)
+                .doOnComplete(() -> {
+                    sample.stop(timer(request, "success"));
+                    onSuccess();
+                })
+                .doOnError(e -> {
+                    sample.stop(timer(request, "error"));
+                    if (isRetryable(e)) {
+                        onFailure(e);
+                    } else {
+                        circuitBreaker.onSuccess();
+                    }
+                })
+                // A downstream timeout or a departed client cancels without an outcome; free the trial slot
+                .doOnCancel(() -> {
+                    sample.stop(timer(request, "cancelled"));
+                    circuitBreaker.release();
+                });
+    }
+
+    private void acquire(long estimatedTokens, long deadline) {
+        if (!circuitBreaker.tryAcquire()) {
+            rejected.increment();
+            throw new OpenAiUnavailableException("OpenAI circuit is open, call refused");
+        }
+
+        long maxWait = Math.max(0, Math.min(TimeUnit.SECONDS.toNanos(timeoutSeconds), deadline - System.nanoTime()));
+        long requestWait = requestBucket.reserve(1, maxWait);
+        long tokenWait = requestWait < 0 ? -1 : tokenBucket.reserve(estimatedTokens, maxWait);
+        if (requestWait < 0 || tokenWait < 0) {
+            if (requestWait >= 0) {
+                requestBucket.adjust(1);
+            }
+            circuitBreaker.release();
+            rejected.increment();
+            throw new OpenAiUnavailableException("OpenAI client-side rate limit reached");
+        }
+
+        long wait = Math.max(requestWait, tokenWait);
+        if (wait > 0) {
+            sleep(TimeUnit.NANOSECONDS.toMillis(wait));
+        }
+    }
+
+    private void onSuccess() {
+        circuitBreaker.onSuccess();
+        requestBucket.recover();
+        tokenBucket.recover();
+    }
+
+    private void onFailure(Throwable e) {
+        circuitBreaker.onFailure();
+        if (e instanceof OpenAiHttpException && ((OpenAiHttpException) e).statusCode == 429) {
+            requestBucket.throttle();
+            tokenBucket.throttle();
+        }
+    }
+
+    private boolean isRetryable(Throwable e) {
+        if (e instanceof OpenAiHttpException) {
+            int status = ((OpenAiHttpException) e).statusCode;
+            return status == 429 || status >= 500;
+        }
+        Throwable cause = e;
+        while (cause != null) {
+            if (cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    // Full jitter: a random delay between 0 and the exponential cap
+    private long backoffMillis(int attempt) {
+        long cap = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    private Timer timer(ChatCompletionRequest request, String outcome) {
+        return Timer.builder("openai.requests")
+                .tag("model", request.getModel())
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    // Roughly four characters per token for the prompt, plus the completion budget
+    private static long estimateTokens(ChatCompletionRequest request) {
+        long chars = 0;
+        for (ChatMessage message : request.getMessages()) {
+            chars += message.getContent() != null ? message.getContent().length() : 0;
+        }
+        return chars / 4 + (request.getMaxTokens() != null ? request.getMaxTokens() : 0);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OpenAiUnavailableException("Interrupted while waiting for OpenAI", e);
+        }
+    }
+
+    private OpenAiService createService() {
+        ObjectMapper mapper = OpenAiService.defaultObjectMapper();
+        OkHttpClient client = OpenAiService.defaultClient(apiKey, Duration.ofSeconds(timeoutSeconds));
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(client)
+                .addConverterFactory(JacksonConverterFactory.create(mapper))
+                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                .build();
+        return new OpenAiService(retrofit.create(OpenAiApi.class), client.dispatcher().executorService());
+    }
+}
@@ -0,0 +1,12 @@
+package com.nadym.transcription.client;
+
+public class OpenAiUnavailableException extends RuntimeException {
+    
+    public OpenAiUnavailableException(String message) {
+        super(message);
+    }
+    
+    public OpenAiUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,69 @@
+package com.nadym.transcription.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket refilled continuously at a per-minute rate. The refill rate adapts to the
+ * server: it is halved whenever the API answers 429 and grows back step by step on success,
+ * never above the configured limit.
+ */
+class TokenBucket {
+
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final double capacity;
+    private final double maxRate;
+    private final double minRate;
+    private double rate;
+    private double available;
+    private long lastRefill;
+
+    TokenBucket(long perMinute) {
+        this.capacity = perMinute;
+        this.maxRate = perMinute / NANOS_PER_MINUTE;
+        this.minRate = maxRate / 16;
+        this.rate = maxRate;
+        this.available = perMinute;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Reserves {@code amount} tokens and returns how long the caller must wait before using
+     * them, or -1 without reserving anything if that wait would exceed {@code maxWaitNanos}.
+     */
+    synchronized long reserve(long amount, long maxWaitNanos) {
+        refill();
+        double needed = Math.min(amount, capacity);
+        double balance = available - needed;
+        long waitNanos = balance >= 0 ? 0 : (long) Math.ceil(-balance / rate);
+        if (waitNanos > maxWaitNanos) {
+            return -1;
+        }
+        available = balance;
+        return waitNanos;
+    }
+
+    // Gives back the part of an estimate that was not actually used (or charges the excess)
+    synchronized void adjust(long tokens) {
+        refill();
+        available = Math.min(capacity, available + tokens);
+    }
+
+    synchronized void throttle() {
+        rate = Math.max(minRate, rate / 2);
+    }
+
+    synchronized void recover() {
+        rate = Math.min(maxRate, rate + maxRate / 20);
+    }
+
+    synchronized double currentPerMinute() {
+        return rate * NANOS_PER_MINUTE;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(capacity, available + (now - lastRefill) * rate);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,56 @@
+package com.nadym.transcription.controller;
+
+import com.nadym.transcription.dto.BatchRunProgressDto;
+import com.nadym.transcription.entity.TranscriptionBatchRun;
+import com.nadym.transcription.service.TranscriptionBatchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+
+@RestController
+@RequestMapping("/api/transcription/batch")
+@Tag(name = "AI Transcription Batch", description = "Admin APIs for bulk processing of queued transcriptions")
+public class TranscriptionBatchController {
+
+    @Autowired
+    private TranscriptionBatchService batchService;
+
+    @PostMapping
+    @Operation(summary = "Start a batch run over pending transcriptions")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TranscriptionBatchRun> startRun(
+            @RequestParam(defaultValue = "100") int batchSize,
+            @RequestParam(defaultValue = "4") int concurrency) {
+        
+        TranscriptionBatchRun run = batchService.startRun(batchSize, concurrency);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/transcription/batch/" + run.getId()))
+                .body(run);
+    }
+
+    @GetMapping("/{runId}")
+    @Operation(summary = "Get batch run progress")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<BatchRunProgressDto> getProgress(@PathVariable Long runId) {
+        return ResponseEntity.ok(batchService.getProgress(runId));
+    }
+
+    @PostMapping("/{runId}/resume")
+    @Operation(summary = "Resume an interrupted batch run from its last checkpoint")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TranscriptionBatchRun> resumeRun(@PathVariable Long runId) {
+        return ResponseEntity.accepted().body(batchService.resumeRun(runId));
+    }
+
+    @PostMapping("/{runId}/cancel")
+    @Operation(summary = "Cancel a batch run after its current page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TranscriptionBatchRun> cancelRun(@PathVariable Long runId) {
+        return ResponseEntity.ok(batchService.cancelRun(runId));
+    }
+}
@@ -1,16 +1,22 @@
 package com.nadym.transcription.controller;
 
+import com.nadym.transcription.dto.TranscriptionStatusDto;
 import com.nadym.transcription.entity.Transcription;
 import com.nadym.transcription.service.TranscriptionService;
+import com.nadym.transcription.service.TranscriptionStreamer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.net.URI;
 
 @RestController
 @RequestMapping("/api/transcription")
@@ -20,6 +26,9 @@ public class TranscriptionController {
     @Autowired
     private TranscriptionService transcriptionService;
 
+    @Autowired
+    private TranscriptionStreamer transcriptionStreamer;
+
     @GetMapping("/doctor/{doctorId}")
     @Operation(summary = "Get doctor transcriptions")
     @PreAuthorize("hasRole('DOCTOR') and #doctorId == authentication.principal.claims['user_id']")
@@ -55,13 +64,41 @@ public class TranscriptionController {
     }
 
     @PutMapping("/{id}/process")
-    @Operation(summary = "Process transcription with AI")
+    @Operation(summary = "Queue transcription for AI processing", description = "Returns immediately; poll the status endpoint for completion")
     @PreAuthorize("hasRole('DOCTOR')")
-    public ResponseEntity<Transcription> processTranscription(
+    public ResponseEntity<TranscriptionStatusDto> processTranscription(
             @PathVariable Long id,
             @RequestBody String rawText) {
         
-        Transcription transcription = transcriptionService.processTranscription(id, rawText);
-        return ResponseEntity.ok(transcription);
+        Transcription transcription = transcriptionService.enqueueTranscription(id, rawText);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/transcription/" + id + "/status"))
+                .body(TranscriptionStatusDto.from(transcription));
+    }
+
+    @PostMapping(value = "/{id}/process/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Process transcription with AI and stream the structured notes", description = "Emits 'notes' events while the notes are generated and a final 'completed' event")
+    @PreAuthorize("hasRole('DOCTOR')")
+    public SseEmitter streamTranscription(
+            @PathVariable Long id,
+            @RequestBody String rawText) {
+        
+        return transcriptionStreamer.stream(id, rawText);
+    }
+
+    @GetMapping("/{id}/status")
+    @Operation(summary = "Get transcription processing status")
+    @PreAuthorize("hasRole('DOCTOR')")
+    public ResponseEntity<TranscriptionStatusDto> getTranscriptionStatus(@PathVariable Long id) {
+        Transcription transcription = transcriptionService.getTranscriptionById(id);
+        return ResponseEntity.ok(TranscriptionStatusDto.from(transcription));
+    }
+
+    @DeleteMapping("/cache")
+    @Operation(summary = "Invalidate cached AI results", description = "Removes cached completions produced with the given prompt version")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Integer> invalidateCachedResults(@RequestParam String promptVersion) {
+        int removed = transcriptionService.invalidateCachedResults(promptVersion);
+        return ResponseEntity.ok(removed);
     }
-}
\ No newline at end of file
+}
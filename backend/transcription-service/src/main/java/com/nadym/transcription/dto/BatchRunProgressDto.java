@@ -0,0 +1,79 @@
+package com.nadym.transcription.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.nadym.transcription.entity.TranscriptionBatchRun;
+
+import java.time.LocalDateTime;
+
+public class BatchRunProgressDto {
+
+    private Long id;
+    private TranscriptionBatchRun.BatchStatus status;
+    private Integer batchSize;
+    private Integer concurrency;
+    private Long lastProcessedId;
+    private Long completedCount;
+    private Long failedCount;
+    private Long pendingCount;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startedAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime finishedAt;
+
+    private String errorMessage;
+
+    // Constructors
+    public BatchRunProgressDto() {}
+
+    public static BatchRunProgressDto from(TranscriptionBatchRun run, long pendingCount) {
+        BatchRunProgressDto dto = new BatchRunProgressDto();
+        dto.setId(run.getId());
+        dto.setStatus(run.getStatus());
+        dto.setBatchSize(run.getBatchSize());
+        dto.setConcurrency(run.getConcurrency());
+        dto.setLastProcessedId(run.getLastProcessedId());
+        dto.setCompletedCount(run.getCompletedCount());
+        dto.setFailedCount(run.getFailedCount());
+        dto.setPendingCount(pendingCount);
+        dto.setStartedAt(run.getStartedAt());
+        dto.setFinishedAt(run.getFinishedAt());
+        dto.setErrorMessage(run.getErrorMessage());
+        return dto;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public TranscriptionBatchRun.BatchStatus getStatus() { return status; }
+    public void setStatus(TranscriptionBatchRun.BatchStatus status) { this.status = status; }
+
+    public Integer getBatchSize() { return batchSize; }
+    public void setBatchSize(Integer batchSize) { this.batchSize = batchSize; }
+
+    public Integer getConcurrency() { return concurrency; }
+    public void setConcurrency(Integer concurrency) { this.concurrency = concurrency; }
+
+    public Long getLastProcessedId() { return lastProcessedId; }
+    public void setLastProcessedId(Long lastProcessedId) { this.lastProcessedId = lastProcessedId; }
+
+    public Long getCompletedCount() { return completedCount; }
+    public void setCompletedCount(Long completedCount) { this.completedCount = completedCount; }
+
+    public Long getFailedCount() { return failedCount; }
+    public void setFailedCount(Long failedCount) { this.failedCount = failedCount; }
+
+    public Long getPendingCount() { return pendingCount; }
+    public void setPendingCount(Long pendingCount) { this.pendingCount = pendingCount; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(LocalDateTime finishedAt) { this.finishedAt = finishedAt; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+}
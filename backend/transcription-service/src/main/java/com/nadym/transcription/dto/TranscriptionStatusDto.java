@@ -0,0 +1,49 @@
+package com.nadym.transcription.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.nadym.transcription.entity.Transcription;
+
+import java.time.LocalDateTime;
+
+public class TranscriptionStatusDto {
+
+    private Long id;
+    private Transcription.TranscriptionStatus status;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime processingStartedAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime processingCompletedAt;
+
+    private String errorMessage;
+
+    // Constructors
+    public TranscriptionStatusDto() {}
+
+    public static TranscriptionStatusDto from(Transcription transcription) {
+        TranscriptionStatusDto dto = new TranscriptionStatusDto();
+        dto.setId(transcription.getId());
+        dto.setStatus(transcription.getStatus());
+        dto.setProcessingStartedAt(transcription.getProcessingStartedAt());
+        dto.setProcessingCompletedAt(transcription.getProcessingCompletedAt());
+        dto.setErrorMessage(transcription.getErrorMessage());
+        return dto;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Transcription.TranscriptionStatus getStatus() { return status; }
+    public void setStatus(Transcription.TranscriptionStatus status) { this.status = status; }
+
+    public LocalDateTime getProcessingStartedAt() { return processingStartedAt; }
+    public void setProcessingStartedAt(LocalDateTime processingStartedAt) { this.processingStartedAt = processingStartedAt; }
+
+    public LocalDateTime getProcessingCompletedAt() { return processingCompletedAt; }
+    public void setProcessingCompletedAt(LocalDateTime processingCompletedAt) { this.processingCompletedAt = processingCompletedAt; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+}
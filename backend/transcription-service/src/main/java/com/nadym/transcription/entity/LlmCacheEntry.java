@@ -0,0 +1,46 @@
+package com.nadym.transcription.entity;
+
+import com.nadym.common.entity.BaseEntity;
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "transcription_llm_cache", indexes = {
+        @Index(name = "idx_llm_cache_prompt_version", columnList = "prompt_version")
+})
+public class LlmCacheEntry extends BaseEntity {
+
+    @Column(name = "cache_key", nullable = false, unique = true, length = 64)
+    private String cacheKey;
+
+    @Column(name = "model", nullable = false)
+    private String model;
+
+    @Column(name = "prompt_version", nullable = false)
+    private String promptVersion;
+
+    @Column(name = "content", nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    // Constructors
+    public LlmCacheEntry() {}
+
+    public LlmCacheEntry(String cacheKey, String model, String promptVersion, String content) {
+        this.cacheKey = cacheKey;
+        this.model = model;
+        this.promptVersion = promptVersion;
+        this.content = content;
+    }
+
+    // Getters and Setters
+    public String getCacheKey() { return cacheKey; }
+    public void setCacheKey(String cacheKey) { this.cacheKey = cacheKey; }
+
+    public String getModel() { return model; }
+    public void setModel(String model) { this.model = model; }
+
+    public String getPromptVersion() { return promptVersion; }
+    public void setPromptVersion(String promptVersion) { this.promptVersion = promptVersion; }
+
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+}
@@ -7,7 +7,9 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transcriptions")
+@Table(name = "transcriptions", indexes = {
+        @Index(name = "idx_transcriptions_status_id", columnList = "status, id")
+})
 public class Transcription extends BaseEntity {
 
     @NotNull(message = "Consultation ID is required")
@@ -0,0 +1,20 @@
+package com.nadym.transcription.repository;
+
+import com.nadym.transcription.entity.LlmCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface LlmCacheEntryRepository extends JpaRepository<LlmCacheEntry, Long> {
+
+    Optional<LlmCacheEntry> findByCacheKey(String cacheKey);
+    
+    @Modifying
+    @Query("DELETE FROM LlmCacheEntry e WHERE e.promptVersion = :promptVersion")
+    int deleteByPromptVersion(@Param("promptVersion") String promptVersion);
+}
@@ -0,0 +1,57 @@
+package com.nadym.transcription.repository;
+
+import com.nadym.transcription.entity.TranscriptionBatchRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Run state changes are conditional updates rather than entity saves: the executing replica,
+ * a cancel request and a replica resuming the run each only act if the row is still in the
+ * state they expect, so none of them fails on a version conflict or overwrites another.
+ */
+@Repository
+public interface TranscriptionBatchRunRepository extends JpaRepository<TranscriptionBatchRun, Long> {
+
+    Optional<TranscriptionBatchRun> findFirstByStatus(TranscriptionBatchRun.BatchStatus status);
+
+    // A stopped run, or a running one whose owner stopped renewing its lease
+    @Modifying
+    @Query(value = "UPDATE transcription_batch_runs SET status = 'RUNNING', lease_owner = :owner, lease_until = :leaseUntil, " +
+                   "finished_at = NULL, error_message = NULL, updated_at = :now, version = version + 1 " +
+                   "WHERE id = :id AND (status IN ('FAILED', 'CANCELLED') " +
+                   "OR (status = 'RUNNING' AND (lease_until IS NULL OR lease_until < :now)))",
+           nativeQuery = true)
+    int acquire(@Param("id") Long id, @Param("owner") String owner,
+                @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query(value = "UPDATE transcription_batch_runs SET completed_count = completed_count + :completed, " +
+                   "failed_count = failed_count + :failed, last_processed_id = :lastId, lease_until = :leaseUntil, " +
+                   "updated_at = :now, version = version + 1 " +
+                   "WHERE id = :id AND status = 'RUNNING' AND lease_owner = :owner",
+           nativeQuery = true)
+    int checkpoint(@Param("id") Long id, @Param("owner") String owner,
+                   @Param("completed") long completed, @Param("failed") long failed, @Param("lastId") Long lastId,
+                   @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Modifying
+    @Query(value = "UPDATE transcription_batch_runs SET status = :status, error_message = :errorMessage, " +
+                   "finished_at = :now, lease_owner = NULL, lease_until = NULL, updated_at = :now, version = version + 1 " +
+                   "WHERE id = :id AND status = 'RUNNING' AND lease_owner = :owner",
+           nativeQuery = true)
+    int finish(@Param("id") Long id, @Param("owner") String owner, @Param("status") String status,
+               @Param("errorMessage") String errorMessage, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "UPDATE transcription_batch_runs SET status = 'CANCELLED', finished_at = :now, " +
+                   "updated_at = :now, version = version + 1 " +
+                   "WHERE id = :id AND status = 'RUNNING'",
+           nativeQuery = true)
+    int cancel(@Param("id") Long id, @Param("now") LocalDateTime now);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,8 +19,17 @@ public interface TranscriptionRepository extends JpaRepository<Transcription, Lo
     
     Optional<Transcription> findByConsultationId(Long consultationId);
     
-    @Query("SELECT t FROM Transcription t WHERE t.status = :status")
-    List<Transcription> findByStatus(@Param("status") Transcription.TranscriptionStatus status);
+    @Query(value = "SELECT * FROM transcriptions t " +
+                   "WHERE t.id > :afterId " +
+                   "AND ((t.status = 'PENDING' AND t.raw_transcription IS NOT NULL) " +
+                   "OR (t.status = 'PROCESSING' AND t.processing_started_at < :staleBefore)) " +
+                   "ORDER BY t.id LIMIT :limit FOR UPDATE SKIP LOCKED",
+           nativeQuery = true)
+    List<Transcription> lockNextPending(@Param("afterId") Long afterId,
+                                        @Param("staleBefore") LocalDateTime staleBefore,
+                                        @Param("limit") int limit);
+    
+    long countByStatus(Transcription.TranscriptionStatus status);
     
     @Query("SELECT COUNT(t) FROM Transcription t WHERE t.doctorId = :doctorId AND t.status = 'COMPLETED'")
     long countCompletedByDoctorId(@Param("doctorId") Long doctorId);
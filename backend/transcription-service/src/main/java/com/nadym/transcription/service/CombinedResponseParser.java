@@ -0,0 +1,75 @@
+package com.nadym.transcription.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Token-level parser for the combined extraction response. Sections are collected as they
+ * are read, so a reply that is truncated or malformed half-way still yields the sections
+ * that came before the error.
+ */
+class CombinedResponseParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    Map<TranscriptionSection, String> parse(String content) {
+        Map<TranscriptionSection, String> sections = new EnumMap<>(TranscriptionSection.class);
+        if (content == null) {
+            return sections;
+        }
+
+        int start = content.indexOf('{');
+        if (start < 0) {
+            return sections;
+        }
+
+        try (JsonParser parser = JSON_FACTORY.createParser(content.substring(start))) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return sections;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                TranscriptionSection section = TranscriptionSection.fromJsonKey(parser.getCurrentName());
+                JsonToken value = parser.nextToken();
+                if (section == null) {
+                    parser.skipChildren();
+                    continue;
+                }
+                String text = readValue(parser, value);
+                if (text != null && !text.isBlank()) {
+                    sections.put(section, text.trim());
+                }
+            }
+        } catch (IOException e) {
+            // Keep whatever was parsed before the error
+        }
+        return sections;
+    }
+
+    // Models sometimes answer a list where a string was asked for; render it as bullet lines
+    private String readValue(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        if (value == JsonToken.START_ARRAY) {
+            StringBuilder text = new StringBuilder();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                    if (text.length() > 0) {
+                        text.append('\n');
+                    }
+                    text.append("- ").append(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return text.toString();
+        }
+        parser.skipChildren();
+        return null;
+    }
+}
@@ -0,0 +1,183 @@
+package com.nadym.transcription.service;
+
+import com.nadym.transcription.entity.LlmCacheEntry;
+import com.nadym.transcription.repository.LlmCacheEntryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Content-addressed cache of model completions. Entries are keyed by a SHA-256 of the
+ * normalized input text, the system prompt, the model and the token limit, so identical
+ * requests are answered without a network call. A bounded LRU map sits in front of an
+ * optional table in Postgres that survives restarts and is shared between replicas.
+ */
+@Component
+public class LlmResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    @Autowired
+    private LlmCacheEntryRepository cacheEntryRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${transcription.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${transcription.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${transcription.cache.persistent:false}")
+    private boolean persistent;
+
+    @Value("${transcription.cache.prompt-version:1}")
+    private String promptVersion;
+
+    private Map<String, CachedCompletion> memory;
+
+    private Counter memoryHits;
+    private Counter persistentHits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    void init() {
+        memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCompletion> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        memoryHits = Counter.builder("transcription.llm.cache.requests")
+                .tag("result", "hit").tag("tier", "memory").register(meterRegistry);
+        persistentHits = Counter.builder("transcription.llm.cache.requests")
+                .tag("result", "hit").tag("tier", "persistent").register(meterRegistry);
+        misses = Counter.builder("transcription.llm.cache.requests")
+                .tag("result", "miss").register(meterRegistry);
+        evictions = Counter.builder("transcription.llm.cache.evictions").register(meterRegistry);
+        Gauge.builder("transcription.llm.cache.size", this, LlmResponseCache::size).register(meterRegistry);
+    }
+
+    public String key(String rawText, String systemPrompt, String model, int maxTokens) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[] { normalize(rawText), systemPrompt, model, Integer.toString(maxTokens) }) {
+                digest.update(part.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Optional<String> get(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        CachedCompletion cached;
+        synchronized (memory) {
+            cached = memory.get(key);
+        }
+        if (cached != null) {
+            memoryHits.increment();
+            return Optional.of(cached.content);
+        }
+
+        if (persistent) {
+            Optional<LlmCacheEntry> entry = cacheEntryRepository.findByCacheKey(key);
+            if (entry.isPresent()) {
+                persistentHits.increment();
+                remember(key, new CachedCompletion(entry.get().getContent(), entry.get().getPromptVersion()));
+                return Optional.of(entry.get().getContent());
+            }
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String key, String model, String content) {
+        if (!enabled || content == null) {
+            return;
+        }
+
+        remember(key, new CachedCompletion(content, promptVersion));
+        if (persistent) {
+            try {
+                cacheEntryRepository.save(new LlmCacheEntry(key, model, promptVersion, content));
+            } catch (DataIntegrityViolationException e) {
+                // Another worker stored the same completion first
+                log.debug("Cache entry {} already persisted", key);
+            }
+        }
+    }
+
+    @Transactional
+    public int invalidatePromptVersion(String version) {
+        int removed;
+        synchronized (memory) {
+            int before = memory.size();
+            memory.values().removeIf(cached -> cached.promptVersion.equals(version));
+            removed = before - memory.size();
+        }
+        // The persistent tier holds every entry of the memory tier, so its count is the total
+        return persistent ? cacheEntryRepository.deleteByPromptVersion(version) : removed;
+    }
+
+    public int size() {
+        synchronized (memory) {
+            return memory.size();
+        }
+    }
+
+    private void remember(String key, CachedCompletion cached) {
+        synchronized (memory) {
+            memory.put(key, cached);
+        }
+    }
+
+    // Whitespace and Unicode composition differences must not defeat the cache
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFC).trim().replaceAll("\\s+", " ");
+    }
+
+    private static class CachedCompletion {
+
+        private final String content;
+        private final String promptVersion;
+
+        CachedCompletion(String content, String promptVersion) {
+            this.content = content;
+            this.promptVersion = promptVersion;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.nadym.transcription.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a transcript into chunks of at most {@code chunkChars} characters. Boundaries are
+ * taken at speaker turns (one per line) first, then at sentence ends, and only as a last
+ * resort inside a sentence. Each chunk repeats the tail of the previous one, up to
+ * {@code overlapChars}, so that context spanning a boundary is not lost.
+ */
+class TranscriptChunker {
+
+    private static final Pattern TURN_BOUNDARY = Pattern.compile("\\R+");
+    private static final Pattern SENTENCE_BOUNDARY = Pattern.compile("(?<=[.!?…])\\s+");
+
+    private final int chunkChars;
+    private final int overlapChars;
+
+    TranscriptChunker(int chunkChars, int overlapChars) {
+        if (overlapChars >= chunkChars) {
+            throw new IllegalArgumentException("Chunk overlap must be smaller than the chunk size");
+        }
+        this.chunkChars = chunkChars;
+        this.overlapChars = overlapChars;
+    }
+
+    List<String> split(String text) {
+        List<String> chunks = new ArrayList<>();
+        Deque<String> current = new ArrayDeque<>();
+        int currentLength = 0;
+
+        for (String unit : units(text)) {
+            if (currentLength + unit.length() + 1 > chunkChars && !current.isEmpty()) {
+                chunks.add(String.join("\n", current));
+
+                // Carry the tail of the chunk over as overlap
+                Deque<String> overlap = new ArrayDeque<>();
+                int overlapLength = 0;
+                while (!current.isEmpty()
+                        && overlapLength + current.peekLast().length() + 1 <= overlapChars
+                        && overlapLength + current.peekLast().length() + unit.length() + 2 <= chunkChars) {
+                    String tail = current.pollLast();
+                    overlap.addFirst(tail);
+                    overlapLength += tail.length() + 1;
+                }
+                current = overlap;
+                currentLength = overlapLength;
+            }
+            current.addLast(unit);
+            currentLength += unit.length() + 1;
+        }
+
+        if (!current.isEmpty()) {
+            chunks.add(String.join("\n", current));
+        }
+        return chunks;
+    }
+
+    private List<String> units(String text) {
+        List<String> units = new ArrayList<>();
+        for (String turn : TURN_BOUNDARY.split(text.trim())) {
+            if (turn.length() <= chunkChars) {
+                addIfNotBlank(units, turn);
+                continue;
+            }
+            for (String sentence : SENTENCE_BOUNDARY.split(turn)) {
+                if (sentence.length() <= chunkChars) {
+                    addIfNotBlank(units, sentence);
+                    continue;
+                }
+                for (int start = 0; start < sentence.length(); start += chunkChars) {
+                    addIfNotBlank(units, sentence.substring(start, Math.min(sentence.length(), start + chunkChars)));
+                }
+            }
+        }
+        return units;
+    }
+
+    private static void addIfNotBlank(List<String> units, String unit) {
+        if (!unit.isBlank()) {
+            units.add(unit.trim());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.nadym.transcription.service;
+
+import com.nadym.common.exception.ResourceNotFoundException;
+import com.nadym.common.exception.ValidationException;
+import com.nadym.transcription.dto.BatchRunProgressDto;
+import com.nadym.transcription.entity.Transcription;
+import com.nadym.transcription.entity.TranscriptionBatchRun;
+import com.nadym.transcription.repository.TranscriptionBatchRunRepository;
+import com.nadym.transcription.repository.TranscriptionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bulk catch-up of queued transcriptions. A run walks the queue in id order, claiming only as
+ * many rows as it processes at once, so each row's lease covers just its own processing. The
+ * results of a slice are saved together with the run's checkpoint, and a run interrupted by a
+ * crash resumes from its last checkpoint.
+ *
+ * The replica executing a run holds a lease on it, renewed at every checkpoint. Resuming,
+ * cancelling and finishing are conditional updates, so two replicas never execute the same run
+ * and a cancel is never overwritten by the run's own outcome.
+ */
+@Service
+public class TranscriptionBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(TranscriptionBatchService.class);
+
+    @Autowired
+    private TranscriptionService transcriptionService;
+
+    @Autowired
+    private TranscriptionRepository transcriptionRepository;
+
+    @Autowired
+    private TranscriptionBatchRunRepository batchRunRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${transcription.batch.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${transcription.batch.max-concurrency:16}")
+    private int maxConcurrency;
+
+    private final String owner = UUID.randomUUID().toString();
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    private final ExecutorService runner = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "transcription-batch-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private TransactionTemplate transaction;
+
+    @PostConstruct
+    void init() {
+        transaction = new TransactionTemplate(transactionManager);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runner.shutdownNow();
+    }
+
+    public TranscriptionBatchRun startRun(int batchSize, int concurrency) {
+        if (batchSize < 1 || batchSize > maxBatchSize) {
+            throw new ValidationException("Batch size must be between 1 and " + maxBatchSize);
+        }
+        if (concurrency < 1 || concurrency > maxConcurrency) {
+            throw new ValidationException("Concurrency must be between 1 and " + maxConcurrency);
+        }
+        if (batchRunRepository.findFirstByStatus(TranscriptionBatchRun.BatchStatus.RUNNING).isPresent()) {
+            throw new ValidationException("A batch run is already in progress");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        TranscriptionBatchRun run = new TranscriptionBatchRun();
+        run.setBatchSize(batchSize);
+        run.setConcurrency(concurrency);
+        run.setStartedAt(now);
+        run.setLeaseOwner(owner);
+        run.setLeaseUntil(now.plus(transcriptionService.jobLease()));
+        run = batchRunRepository.save(run);
+
+        launch(run.getId());
+        return run;
+    }
+
+    public TranscriptionBatchRun resumeRun(Long runId) {
+        TranscriptionBatchRun run = getRun(runId);
+        if (run.getStatus() == TranscriptionBatchRun.BatchStatus.COMPLETED) {
+            throw new ValidationException("Batch run " + runId + " is already completed");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Integer acquired = transaction.execute(status -> batchRunRepository.acquire(runId, owner, now, now.plus(transcriptionService.jobLease())));
+        if (acquired == null || acquired == 0) {
+            throw new ValidationException("Batch run " + runId + " is already running");
+        }
+
+        launch(runId);
+        return getRun(runId);
+    }
+
+    // The run stops after the slice it is currently processing
+    public TranscriptionBatchRun cancelRun(Long runId) {
+        getRun(runId);
+        Integer cancelled = transaction.execute(status -> batchRunRepository.cancel(runId, LocalDateTime.now()));
+        if (cancelled == null || cancelled == 0) {
+            throw new ValidationException("Batch run " + runId + " is not running");
+        }
+        return getRun(runId);
+    }
+
+    public BatchRunProgressDto getProgress(Long runId) {
+        TranscriptionBatchRun run = getRun(runId);
+        long pending = transcriptionRepository.countByStatus(Transcription.TranscriptionStatus.PENDING);
+        return BatchRunProgressDto.from(run, pending);
+    }
+
+    private TranscriptionBatchRun getRun(Long runId) {
+        return batchRunRepository.findById(runId)
+                .orElseThrow(() -> new ResourceNotFoundException("Batch run not found with id: " + runId));
+    }
+
+    private void launch(Long runId) {
+        runner.execute(() -> execute(runId));
+    }
+
+    private void execute(Long runId) {
+        TranscriptionBatchRun run = getRun(runId);
+        int sliceSize = Math.min(run.getBatchSize(), run.getConcurrency());
+        ExecutorService pool = Executors.newFixedThreadPool(run.getConcurrency());
+        long afterId = run.getLastProcessedId();
+        // A slice takes as long as its slowest job, so the run's lease matches a job's
+        Duration lease = transcriptionService.jobLease();
+        log.info("Batch run {} starting after id {}", runId, afterId);
+
+        try {
+            while (true) {
+                List<Transcription> slice = transcriptionService.claimPendingTranscriptions(
+                        afterId, sliceSize, lease);
+                if (slice.isEmpty()) {
+                    finish(runId, TranscriptionBatchRun.BatchStatus.COMPLETED, null);
+                    log.info("Batch run {} completed", runId);
+                    return;
+                }
+
+                CompletableFuture.allOf(slice.stream()
+                        .map(transcription -> CompletableFuture.runAsync(
+                                () -> transcriptionService.applyProcessing(transcription), pool))
+                        .toArray(CompletableFuture[]::new))
+                        .join();
+
+                long sliceLastId = slice.get(slice.size() - 1).getId();
+                // The results are ours to save even if the run was cancelled or taken over meanwhile
+                Integer checkpointed = transaction.execute(status -> {
+                    List<Transcription> saved = transcriptionService.saveProcessedTranscriptions(slice);
+                    long failed = saved.stream()
+                            .filter(t -> t.getStatus() == Transcription.TranscriptionStatus.FAILED)
+                            .count();
+                    LocalDateTime now = LocalDateTime.now();
+                    return batchRunRepository.checkpoint(runId, owner, saved.size() - failed, failed, sliceLastId,
+                            now, now.plus(lease));
+                });
+
+                if (checkpointed == null || checkpointed == 0) {
+                    log.info("Batch run {} stopped after id {}", runId, sliceLastId);
+                    return;
+                }
+                afterId = sliceLastId;
+            }
+        } catch (Exception e) {
+            log.error("Batch run {} failed", runId, e);
+            finish(runId, TranscriptionBatchRun.BatchStatus.FAILED, e.getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // A no-op when the run was cancelled or taken over by another replica
+    private void finish(Long runId, TranscriptionBatchRun.BatchStatus status, String errorMessage) {
+        transaction.executeWithoutResult(tx ->
+                batchRunRepository.finish(runId, owner, status.name(), errorMessage, LocalDateTime.now()));
+    }
+}
@@ -0,0 +1,87 @@
+package com.nadym.transcription.service;
+
+import com.nadym.transcription.entity.Transcription;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Polls the transcriptions table for queued jobs and runs them on a fixed worker pool.
+ * Claiming goes through {@code FOR UPDATE SKIP LOCKED}, so any number of replicas can
+ * poll the same table without two of them taking the same row.
+ */
+@Component
+public class TranscriptionJobWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(TranscriptionJobWorker.class);
+
+    @Autowired
+    private TranscriptionService transcriptionService;
+
+    @Value("${transcription.jobs.workers:4}")
+    private int workers;
+
+    private ExecutorService workerPool;
+
+    private Semaphore freeWorkers;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "transcription-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        freeWorkers = new Semaphore(workers);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workerPool.shutdown();
+    }
+
+    @Scheduled(fixedDelayString = "${transcription.jobs.poll-interval-ms:1000}")
+    public void poll() {
+        int capacity = freeWorkers.availablePermits();
+        if (capacity == 0) {
+            return;
+        }
+
+        List<Transcription> claimed;
+        try {
+            claimed = transcriptionService.claimPendingTranscriptions(capacity, transcriptionService.jobLease());
+        } catch (Exception e) {
+            log.warn("Could not claim pending transcriptions: {}", e.getMessage());
+            return;
+        }
+
+        for (Transcription transcription : claimed) {
+            // Only this scheduler thread acquires permits, so this never waits
+            freeWorkers.acquireUninterruptibly();
+            workerPool.execute(() -> {
+                try {
+                    transcriptionService.completeTranscription(transcription);
+                } catch (ObjectOptimisticLockingFailureException e) {
+                    log.info("Transcription {} was re-queued or reclaimed while processing, result discarded", transcription.getId());
+                } catch (Exception e) {
+                    log.error("Transcription {} could not be completed", transcription.getId(), e);
+                } finally {
+                    freeWorkers.release();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.nadym.transcription.service;
+
+import com.nadym.transcription.client.OpenAiClient;
+import com.theokanning.openai.completion.chat.ChatCompletionChoice;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Produces the AI sections of a transcription. In combined mode a single completion returns
+ * every section as one JSON object; any section it does not provide is then requested with
+ * its own prompt, concurrently on a bounded pool. Each of those calls has its own timeout
+ * and falls back independently, so one slow or failing call never discards the others.
+ */
+@Component
+public class TranscriptionProcessingEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(TranscriptionProcessingEngine.class);
+
+    private static final String COMBINED_PROMPT =
+            "Tu es un assistant médical. Analyse la consultation suivante et réponds uniquement avec un objet JSON "
+            + "contenant exactement les clés suivantes, chacune ayant pour valeur une chaîne de caractères en français: "
+            + "\"structured_notes\" (notes structurées avec sections: Motif de consultation, Examen clinique, Diagnostic, Plan de traitement), "
+            + "\"medical_summary\" (résumé médical concis), "
+            + "\"key_findings\" (éléments cliniques clés et observations importantes), "
+            + "\"recommendations\" (recommandations médicales et plan de suivi).";
+
+    private static final String CHUNK_PROMPT =
+            "Tu es un assistant médical. Voici un extrait d'une longue consultation médicale. "
+            + "Résume fidèlement toutes les informations médicalement pertinentes (motif, symptômes, antécédents, "
+            + "examen clinique, diagnostic, traitements et posologies, plan de suivi) sans rien inventer. "
+            + "Conserve les valeurs chiffrées et les noms de médicaments.";
+
+    private static final int CHUNK_MAX_TOKENS = 500;
+
+    private static final int COMBINED_MAX_TOKENS = Arrays.stream(TranscriptionSection.values())
+            .mapToInt(TranscriptionSection::getMaxTokens)
+            .sum();
+
+    @Autowired
+    private LlmResponseCache responseCache;
+
+    @Autowired
+    private OpenAiClient openAiClient;
+
+    @Value("${openai.model:gpt-3.5-turbo}")
+    private String model;
+
+    @Value("${transcription.processing.pool-size:8}")
+    private int poolSize;
+
+    @Value("${transcription.processing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${transcription.processing.call-timeout-seconds:90}")
+    private long callTimeoutSeconds;
+
+    @Value("${openai.timeout-seconds:30}")
+    private long requestTimeoutSeconds;
+
+    @Value("${transcription.chunking.max-input-chars:12000}")
+    private int maxInputChars;
+
+    @Value("${transcription.chunking.chunk-chars:8000}")
+    private int chunkChars;
+
+    @Value("${transcription.chunking.overlap-chars:400}")
+    private int overlapChars;
+
+    @Value("${transcription.chunking.max-rounds:3}")
+    private int maxChunkRounds;
+
+    // "combined" asks for all sections in a single JSON completion, "sections" sends one prompt per section
+    @Value("${transcription.processing.mode:combined}")
+    private String mode;
+
+    private final CombinedResponseParser combinedResponseParser = new CombinedResponseParser();
+
+    private TranscriptChunker chunker;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        chunker = new TranscriptChunker(chunkChars, overlapChars);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "transcription-llm-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // Saturation pushes the work back onto the caller instead of dropping sections
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Upper bound on processing one transcript: every chunk round, the combined completion and
+     * the per-section prompts are each cut off at the call timeout, and one HTTP attempt may
+     * still be in flight when that deadline passes.
+     */
+    public Duration maxProcessingTime() {
+        return Duration.ofSeconds((maxChunkRounds + 2L) * (callTimeoutSeconds + requestTimeoutSeconds));
+    }
+
+    public boolean isAvailable() {
+        return openAiClient.isConfigured();
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public Result process(String rawText) {
+        String input = condense(rawText);
+        Map<TranscriptionSection, String> sections = new EnumMap<>(TranscriptionSection.class);
+        if ("combined".equalsIgnoreCase(mode)) {
+            sections.putAll(completeCombined(input));
+        }
+
+        // Only the sections the combined reply did not provide are requested one by one
+        Set<TranscriptionSection> remaining = EnumSet.allOf(TranscriptionSection.class);
+        remaining.removeAll(sections.keySet());
+
+        return collect(rawText, sections, submit(input, remaining));
+    }
+
+    /**
+     * Streams the structured notes to {@code notesListener} as the model generates them, while
+     * the other sections are requested in parallel. Returns once every section is available.
+     */
+    public Result processStreaming(String rawText, Consumer<String> notesListener) {
+        String input = condense(rawText);
+        Map<TranscriptionSection, CompletableFuture<String>> futures =
+                submit(input, EnumSet.complementOf(EnumSet.of(TranscriptionSection.STRUCTURED_NOTES)));
+
+        Map<TranscriptionSection, String> sections = new EnumMap<>(TranscriptionSection.class);
+        try {
+            sections.put(TranscriptionSection.STRUCTURED_NOTES, streamStructuredNotes(input, notesListener));
+        } catch (Exception e) {
+            futures.put(TranscriptionSection.STRUCTURED_NOTES, CompletableFuture.failedFuture(e));
+        }
+        return collect(rawText, sections, futures);
+    }
+
+    /**
+     * Map step of the long-transcript pipeline: a transcript longer than the input limit is
+     * cut into overlapping chunks that are summarised in parallel, and the joined summaries
+     * become the input of the section prompts (the reduce step). Summaries that are still too
+     * long go through another round, up to a fixed number of rounds.
+     */
+    String condense(String rawText) {
+        String text = rawText;
+        for (int round = 1; text.length() > maxInputChars && round <= maxChunkRounds; round++) {
+            List<String> chunks = chunker.split(text);
+            log.debug("Condensing {} characters in {} chunks (round {})", text.length(), chunks.size(), round);
+
+            List<CompletableFuture<String>> summaries = new ArrayList<>(chunks.size());
+            long deadline = deadline();
+            for (String chunk : chunks) {
+                summaries.add(CompletableFuture
+                        .supplyAsync(() -> complete(CHUNK_PROMPT, CHUNK_MAX_TOKENS, chunk, deadline), executor)
+                        .orTimeout(callTimeoutSeconds, TimeUnit.SECONDS)
+                        // A failed chunk keeps its own text rather than dropping that part of the consultation
+                        .exceptionally(ex -> chunk));
+            }
+
+            StringBuilder condensed = new StringBuilder();
+            for (CompletableFuture<String> summary : summaries) {
+                if (condensed.length() > 0) {
+                    condensed.append("\n\n");
+                }
+                condensed.append(summary.join());
+            }
+            text = condensed.toString();
+        }
+
+        if (text.length() > maxInputChars) {
+            log.warn("Transcript still has {} characters after {} rounds of chunk summaries", text.length(), maxChunkRounds);
+        }
+        return text;
+    }
+
+    private Map<TranscriptionSection, CompletableFuture<String>> submit(String rawText, Set<TranscriptionSection> sections) {
+        Map<TranscriptionSection, CompletableFuture<String>> futures = new EnumMap<>(TranscriptionSection.class);
+        long deadline = deadline();
+        for (TranscriptionSection section : sections) {
+            futures.put(section, CompletableFuture
+                    .supplyAsync(() -> complete(section, rawText, deadline), executor)
+                    .orTimeout(callTimeoutSeconds, TimeUnit.SECONDS));
+        }
+        return futures;
+    }
+
+    // Calls submitted together share one deadline, the moment orTimeout abandons them
+    private long deadline() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(callTimeoutSeconds);
+    }
+
+    private Result collect(String rawText, Map<TranscriptionSection, String> sections,
+                           Map<TranscriptionSection, CompletableFuture<String>> futures) {
+        CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                .exceptionally(ex -> null)
+                .join();
+
+        Set<TranscriptionSection> failed = EnumSet.noneOf(TranscriptionSection.class);
+        futures.forEach((section, future) -> {
+            try {
+                sections.put(section, future.join());
+            } catch (Exception e) {
+                log.warn("Section {} failed, using fallback: {}", section, e.getMessage());
+                failed.add(section);
+                sections.put(section, section.fallback(rawText));
+            }
+        });
+        return new Result(sections, failed);
+    }
+
+    String streamStructuredNotes(String rawText, Consumer<String> listener) {
+        TranscriptionSection section = TranscriptionSection.STRUCTURED_NOTES;
+        String cacheKey = responseCache.key(rawText, section.getSystemPrompt(), model, section.getMaxTokens());
+        Optional<String> cached = responseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            listener.accept(cached.get());
+            return cached.get();
+        }
+
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model(model)
+                .messages(Arrays.asList(
+                        new ChatMessage("system", section.getSystemPrompt()),
+                        new ChatMessage("user", rawText)
+                ))
+                .maxTokens(section.getMaxTokens())
+                .stream(true)
+                .build();
+
+        // Bounded by maxTokens; deltas are handed to the listener as soon as they arrive
+        StringBuilder notes = new StringBuilder();
+        openAiClient.streamChatCompletion(request)
+                .timeout(callTimeoutSeconds, TimeUnit.SECONDS)
+                .blockingForEach(chunk -> {
+                    for (ChatCompletionChoice choice : chunk.getChoices()) {
+                        String delta = choice.getMessage() != null ? choice.getMessage().getContent() : null;
+                        if (delta != null && !delta.isEmpty()) {
+                            notes.append(delta);
+                            listener.accept(delta);
+                        }
+                    }
+                });
+
+        String content = notes.toString();
+        if (content.isBlank()) {
+            throw new IllegalStateException("Streamed completion returned no content");
+        }
+        responseCache.put(cacheKey, model, content);
+        return content;
+    }
+
+    Map<TranscriptionSection, String> completeCombined(String rawText) {
+        String cacheKey = responseCache.key(rawText, COMBINED_PROMPT, model, COMBINED_MAX_TOKENS);
+        Optional<String> cached = responseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return combinedResponseParser.parse(cached.get());
+        }
+
+        try {
+            ChatCompletionRequest request = ChatCompletionRequest.builder()
+                    .model(model)
+                    .messages(Arrays.asList(
+                            new ChatMessage("system", COMBINED_PROMPT),
+                            new ChatMessage("user", rawText)
+                    ))
+                    .maxTokens(COMBINED_MAX_TOKENS)
+                    .build();
+
+            ChatCompletionResult result = openAiClient.createChatCompletion(request, deadline());
+            if (result.getUsage() != null) {
+                log.debug("Combined completion used {} prompt and {} completion tokens",
+                        result.getUsage().getPromptTokens(), result.getUsage().getCompletionTokens());
+            }
+
+            String content = result.getChoices().get(0).getMessage().getContent();
+            Map<TranscriptionSection, String> sections = combinedResponseParser.parse(content);
+            if (sections.size() < TranscriptionSection.values().length) {
+                log.warn("Combined completion returned {} of {} sections, requesting the rest separately",
+                        sections.size(), TranscriptionSection.values().length);
+            } else {
+                // Incomplete replies are not cached, otherwise they would be replayed on every retry
+                responseCache.put(cacheKey, model, content);
+            }
+            return sections;
+        } catch (Exception e) {
+            log.warn("Combined completion failed, falling back to per-section prompts: {}", e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+
+    String complete(TranscriptionSection section, String rawText, long deadline) {
+        return complete(section.getSystemPrompt(), section.getMaxTokens(), rawText, deadline);
+    }
+
+    String complete(String systemPrompt, int maxTokens, String rawText, long deadline) {
+        String cacheKey = responseCache.key(rawText, systemPrompt, model, maxTokens);
+        Optional<String> cached = responseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        ChatCompletionRequest request = ChatCompletionRequest.builder()
+                .model(model)
+                .messages(Arrays.asList(
+                        new ChatMessage("system", systemPrompt),
+                        new ChatMessage("user", rawText)
+                ))
+                .maxTokens(maxTokens)
+                .build();
+
+        String content = openAiClient.createChatCompletion(request, deadline).getChoices().get(0).getMessage().getContent();
+        responseCache.put(cacheKey, model, content);
+        return content;
+    }
+
+    public static class Result {
+
+        private final Map<TranscriptionSection, String> sections;
+        private final Set<TranscriptionSection> failedSections;
+
+        Result(Map<TranscriptionSection, String> sections, Set<TranscriptionSection> failedSections) {
+            this.sections = Collections.unmodifiableMap(sections);
+            this.failedSections = Collections.unmodifiableSet(failedSections);
+        }
+
+        public String get(TranscriptionSection section) { return sections.get(section); }
+
+        public Set<TranscriptionSection> getFailedSections() { return failedSections; }
+
+        public boolean isPartial() { return !failedSections.isEmpty(); }
+
+        public boolean isFailed() { return failedSections.size() == sections.size(); }
+    }
+}
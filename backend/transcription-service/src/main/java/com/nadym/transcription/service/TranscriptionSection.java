@@ -0,0 +1,57 @@
+package com.nadym.transcription.service;
+
+public enum TranscriptionSection {
+
+    STRUCTURED_NOTES(
+            "structured_notes",
+            "Tu es un assistant médical. Structure les notes de consultation suivantes en format médical professionnel avec sections: Motif de consultation, Examen clinique, Diagnostic, Plan de traitement.",
+            1000,
+            null),
+    MEDICAL_SUMMARY(
+            "medical_summary",
+            "Génère un résumé médical concis de cette consultation en français.",
+            300,
+            "Résumé non disponible"),
+    KEY_FINDINGS(
+            "key_findings",
+            "Extrais les éléments cliniques clés et les observations importantes de cette consultation médicale.",
+            400,
+            "Éléments clés non disponibles"),
+    RECOMMENDATIONS(
+            "recommendations",
+            "Génère les recommandations médicales et le plan de suivi basés sur cette consultation.",
+            400,
+            "Recommandations non disponibles");
+
+    private final String jsonKey;
+    private final String systemPrompt;
+    private final int maxTokens;
+    private final String fallbackText;
+
+    TranscriptionSection(String jsonKey, String systemPrompt, int maxTokens, String fallbackText) {
+        this.jsonKey = jsonKey;
+        this.systemPrompt = systemPrompt;
+        this.maxTokens = maxTokens;
+        this.fallbackText = fallbackText;
+    }
+
+    public String getJsonKey() { return jsonKey; }
+
+    public String getSystemPrompt() { return systemPrompt; }
+
+    public int getMaxTokens() { return maxTokens; }
+
+    public static TranscriptionSection fromJsonKey(String jsonKey) {
+        for (TranscriptionSection section : values()) {
+            if (section.jsonKey.equals(jsonKey)) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    // Structured notes fall back to the raw transcription itself
+    public String fallback(String rawText) {
+        return fallbackText != null ? fallbackText : rawText;
+    }
+}
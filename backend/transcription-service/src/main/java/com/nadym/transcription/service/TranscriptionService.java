@@ -1,20 +1,25 @@
 package com.nadym.transcription.service;
 
 import com.nadym.common.exception.ResourceNotFoundException;
+import com.nadym.common.exception.ValidationException;
 import com.nadym.transcription.entity.Transcription;
 import com.nadym.transcription.repository.TranscriptionRepository;
-import com.theokanning.openai.completion.chat.ChatCompletionRequest;
-import com.theokanning.openai.completion.chat.ChatMessage;
-import com.theokanning.openai.service.OpenAiService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 
 @Service
 @Transactional
@@ -23,10 +28,14 @@ public class TranscriptionService {
     @Autowired
     private TranscriptionRepository transcriptionRepository;
 
-    @Value("${openai.api-key}")
-    private String openAiApiKey;
+    @Autowired
+    private TranscriptionProcessingEngine processingEngine;
+
+    @Value("${transcription.jobs.lease-margin-seconds:60}")
+    private long leaseMarginSeconds;
 
-    private OpenAiService openAiService;
+    @Autowired
+    private LlmResponseCache responseCache;
 
     public Page<Transcription> getDoctorTranscriptions(Long doctorId, Pageable pageable) {
         return transcriptionRepository.findByDoctorId(doctorId, pageable);
@@ -48,32 +57,126 @@ public class TranscriptionService {
         return transcriptionRepository.save(transcription);
     }
 
-    public Transcription processTranscription(Long transcriptionId, String rawText) {
+    public Transcription enqueueTranscription(Long transcriptionId, String rawText) {
         Transcription transcription = getTranscriptionById(transcriptionId);
         
+        if (transcription.getStatus() == Transcription.TranscriptionStatus.PROCESSING) {
+            throw new ValidationException("Transcription " + transcriptionId + " is already being processed");
+        }
+        
+        transcription.setStatus(Transcription.TranscriptionStatus.PENDING);
+        transcription.setRawTranscription(rawText);
+        transcription.setErrorMessage(null);
+        transcription.setProcessingStartedAt(null);
+        transcription.setProcessingCompletedAt(null);
+        
+        return transcriptionRepository.save(transcription);
+    }
+
+    // Long enough that a job still being worked on is never reclaimed by another worker
+    public Duration jobLease() {
+        return processingEngine.maxProcessingTime().plusSeconds(leaseMarginSeconds);
+    }
+
+    /**
+     * Claims up to {@code limit} queued transcriptions for this worker. Rows locked by another
+     * replica are skipped, and PROCESSING rows whose lease has expired are picked up again.
+     */
+    public List<Transcription> claimPendingTranscriptions(int limit, Duration lease) {
+        return claimPendingTranscriptions(0L, limit, lease);
+    }
+
+    // Keyset variant: only rows with an id above afterId are considered, in id order
+    public List<Transcription> claimPendingTranscriptions(Long afterId, int limit, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Transcription> claimed = transcriptionRepository.lockNextPending(afterId, now.minus(lease), limit);
+        for (Transcription transcription : claimed) {
+            transcription.setStatus(Transcription.TranscriptionStatus.PROCESSING);
+            transcription.setProcessingStartedAt(now);
+        }
+        return transcriptionRepository.saveAll(claimed);
+    }
+
+    // Claims a transcription for a caller that processes it immediately instead of going through the queue
+    public Transcription startTranscription(Long transcriptionId, String rawText) {
+        Transcription transcription = enqueueTranscription(transcriptionId, rawText);
         transcription.setStatus(Transcription.TranscriptionStatus.PROCESSING);
         transcription.setProcessingStartedAt(LocalDateTime.now());
-        transcription.setRawTranscription(rawText);
+        return transcriptionRepository.save(transcription);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Transcription completeTranscription(Transcription transcription) {
+        return completeTranscription(transcription, processingEngine::process);
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Transcription completeTranscription(Transcription transcription,
+                                               Function<String, TranscriptionProcessingEngine.Result> processor) {
+        applyProcessing(transcription, processor);
+        return transcriptionRepository.save(transcription);
+    }
+
+    /**
+     * Saves transcriptions processed outside of the persistence context in one transaction, so
+     * the updates go out as a JDBC batch. Rows whose version moved since they were claimed have
+     * been re-queued or reclaimed in the meantime and are left untouched.
+     */
+    public List<Transcription> saveProcessedTranscriptions(List<Transcription> processed) {
+        Map<Long, Transcription> byId = new HashMap<>();
+        for (Transcription transcription : processed) {
+            byId.put(transcription.getId(), transcription);
+        }
+
+        List<Transcription> saved = new ArrayList<>();
+        for (Transcription current : transcriptionRepository.findAllById(byId.keySet())) {
+            Transcription result = byId.get(current.getId());
+            if (!Objects.equals(current.getVersion(), result.getVersion())) {
+                continue;
+            }
+            current.setStructuredNotes(result.getStructuredNotes());
+            current.setMedicalSummary(result.getMedicalSummary());
+            current.setKeyFindings(result.getKeyFindings());
+            current.setRecommendations(result.getRecommendations());
+            current.setConfidenceScore(result.getConfidenceScore());
+            current.setLanguageDetected(result.getLanguageDetected());
+            current.setStatus(result.getStatus());
+            current.setErrorMessage(result.getErrorMessage());
+            current.setProcessingCompletedAt(result.getProcessingCompletedAt());
+            saved.add(current);
+        }
+        return saved;
+    }
+
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void applyProcessing(Transcription transcription) {
+        applyProcessing(transcription, processingEngine::process);
+    }
+
+    // Runs outside of any transaction so that no DB connection is held while the model is called
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void applyProcessing(Transcription transcription,
+                                Function<String, TranscriptionProcessingEngine.Result> processor) {
+        String rawText = transcription.getRawTranscription();
         
         try {
-            // Initialize OpenAI service if not already done
-            if (openAiService == null && !openAiApiKey.equals("your-api-key-here")) {
-                openAiService = new OpenAiService(openAiApiKey);
-            }
-            
-            if (openAiService != null) {
+            if (processingEngine.isAvailable()) {
                 // Process with OpenAI to structure the medical notes
-                String structuredNotes = generateStructuredNotes(rawText);
-                String medicalSummary = generateMedicalSummary(rawText);
-                String keyFindings = extractKeyFindings(rawText);
-                String recommendations = generateRecommendations(rawText);
+                TranscriptionProcessingEngine.Result result = processor.apply(rawText);
                 
-                transcription.setStructuredNotes(structuredNotes);
-                transcription.setMedicalSummary(medicalSummary);
-                transcription.setKeyFindings(keyFindings);
-                transcription.setRecommendations(recommendations);
+                transcription.setStructuredNotes(result.get(TranscriptionSection.STRUCTURED_NOTES));
+                transcription.setMedicalSummary(result.get(TranscriptionSection.MEDICAL_SUMMARY));
+                transcription.setKeyFindings(result.get(TranscriptionSection.KEY_FINDINGS));
+                transcription.setRecommendations(result.get(TranscriptionSection.RECOMMENDATIONS));
                 transcription.setConfidenceScore(0.85); // Mock confidence score
                 transcription.setLanguageDetected("fr"); // French
+                
+                if (result.isFailed()) {
+                    throw new IllegalStateException("All AI sections failed for transcription " + transcription.getId());
+                }
+                if (result.isPartial()) {
+                    transcription.setErrorMessage("Partial result, sections unavailable: " + result.getFailedSections());
+                }
             } else {
                 // Fallback processing without OpenAI
                 transcription.setStructuredNotes(rawText);
@@ -88,83 +191,9 @@ public class TranscriptionService {
             transcription.setErrorMessage(e.getMessage());
             transcription.setProcessingCompletedAt(LocalDateTime.now());
         }
-        
-        return transcriptionRepository.save(transcription);
     }
 
-    private String generateStructuredNotes(String rawText) {
-        if (openAiService == null) return rawText;
-        
-        try {
-            ChatCompletionRequest request = ChatCompletionRequest.builder()
-                    .model("gpt-3.5-turbo")
-                    .messages(Arrays.asList(
-                            new ChatMessage("system", "Tu es un assistant médical. Structure les notes de consultation suivantes en format médical professionnel avec sections: Motif de consultation, Examen clinique, Diagnostic, Plan de traitement."),
-                            new ChatMessage("user", rawText)
-                    ))
-                    .maxTokens(1000)
-                    .build();
-            
-            return openAiService.createChatCompletion(request).getChoices().get(0).getMessage().getContent();
-        } catch (Exception e) {
-            return rawText; // Fallback to raw text
-        }
-    }
-
-    private String generateMedicalSummary(String rawText) {
-        if (openAiService == null) return "Résumé non disponible";
-        
-        try {
-            ChatCompletionRequest request = ChatCompletionRequest.builder()
-                    .model("gpt-3.5-turbo")
-                    .messages(Arrays.asList(
-                            new ChatMessage("system", "Génère un résumé médical concis de cette consultation en français."),
-                            new ChatMessage("user", rawText)
-                    ))
-                    .maxTokens(300)
-                    .build();
-            
-            return openAiService.createChatCompletion(request).getChoices().get(0).getMessage().getContent();
-        } catch (Exception e) {
-            return "Résumé non disponible";
-        }
-    }
-
-    private String extractKeyFindings(String rawText) {
-        if (openAiService == null) return "Éléments clés non disponibles";
-        
-        try {
-            ChatCompletionRequest request = ChatCompletionRequest.builder()
-                    .model("gpt-3.5-turbo")
-                    .messages(Arrays.asList(
-                            new ChatMessage("system", "Extrais les éléments cliniques clés et les observations importantes de cette consultation médicale."),
-                            new ChatMessage("user", rawText)
-                    ))
-                    .maxTokens(400)
-                    .build();
-            
-            return openAiService.createChatCompletion(request).getChoices().get(0).getMessage().getContent();
-        } catch (Exception e) {
-            return "Éléments clés non disponibles";
-        }
-    }
-
-    private String generateRecommendations(String rawText) {
-        if (openAiService == null) return "Recommandations non disponibles";
-        
-        try {
-            ChatCompletionRequest request = ChatCompletionRequest.builder()
-                    .model("gpt-3.5-turbo")
-                    .messages(Arrays.asList(
-                            new ChatMessage("system", "Génère les recommandations médicales et le plan de suivi basés sur cette consultation."),
-                            new ChatMessage("user", rawText)
-                    ))
-                    .maxTokens(400)
-                    .build();
-            
-            return openAiService.createChatCompletion(request).getChoices().get(0).getMessage().getContent();
-        } catch (Exception e) {
-            return "Recommandations non disponibles";
-        }
+    public int invalidateCachedResults(String promptVersion) {
+        return responseCache.invalidatePromptVersion(promptVersion);
     }
-}
\ No newline at end of file
+}
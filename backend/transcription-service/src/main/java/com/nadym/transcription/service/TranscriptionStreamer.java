@@ -0,0 +1,116 @@
+package com.nadym.transcription.service;
+
+import com.nadym.common.exception.ValidationException;
+import com.nadym.transcription.dto.TranscriptionStatusDto;
+import com.nadym.transcription.entity.Transcription;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes a transcription while pushing the structured notes to the caller as Server-Sent
+ * Events. Deltas are written straight to the response, so nothing but the final text is kept
+ * per stream. A client that disconnects does not abort processing: the result is still saved.
+ */
+@Component
+public class TranscriptionStreamer {
+
+    private static final Logger log = LoggerFactory.getLogger(TranscriptionStreamer.class);
+
+    @Autowired
+    private TranscriptionService transcriptionService;
+
+    @Autowired
+    private TranscriptionProcessingEngine processingEngine;
+
+    @Value("${transcription.streaming.max-concurrent:32}")
+    private int maxConcurrentStreams;
+
+    @Value("${transcription.streaming.timeout-ms:120000}")
+    private long timeoutMs;
+
+    private ExecutorService streamPool;
+
+    private Semaphore freeStreams;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        streamPool = Executors.newFixedThreadPool(maxConcurrentStreams, runnable -> {
+            Thread thread = new Thread(runnable, "transcription-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        freeStreams = new Semaphore(maxConcurrentStreams);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        streamPool.shutdownNow();
+    }
+
+    public SseEmitter stream(Long transcriptionId, String rawText) {
+        if (!processingEngine.isAvailable()) {
+            throw new ValidationException("Streaming requires the OpenAI integration to be configured");
+        }
+        if (!freeStreams.tryAcquire()) {
+            throw new ValidationException("Too many concurrent streams, queue the transcription with PUT /api/transcription/" + transcriptionId + "/process");
+        }
+
+        Transcription transcription;
+        try {
+            transcription = transcriptionService.startTranscription(transcriptionId, rawText);
+        } catch (RuntimeException e) {
+            freeStreams.release();
+            throw e;
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        AtomicBoolean connected = new AtomicBoolean(true);
+        emitter.onCompletion(() -> connected.set(false));
+        emitter.onTimeout(() -> connected.set(false));
+        emitter.onError(e -> connected.set(false));
+
+        streamPool.execute(() -> {
+            try {
+                Transcription completed = transcriptionService.completeTranscription(transcription,
+                        text -> processingEngine.processStreaming(text, delta -> send(emitter, connected, "notes", Map.of("delta", delta))));
+                send(emitter, connected, "completed", TranscriptionStatusDto.from(completed));
+                emitter.complete();
+            } catch (Exception e) {
+                log.error("Streamed processing of transcription {} failed", transcriptionId, e);
+                emitter.completeWithError(e);
+            } finally {
+                freeStreams.release();
+            }
+        });
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, AtomicBoolean connected, String event, Object data) {
+        if (!connected.get()) {
+            return;
+        }
+        try {
+            // JSON keeps line breaks in the generated text from breaking SSE framing
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+        } catch (Exception e) {
+            // Keep processing so the final result is still persisted
+            connected.set(false);
+            log.debug("Client left the stream: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.nadym.transcription.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Local stand-in for the OpenAI chat completions endpoint. Responses are scripted in order;
+ * once the script runs out the fallback answers, either a fixed response or one computed from
+ * the request body. A response can be delayed before its headers, to trip client timeouts,
+ * or between stream events, to keep a stream open.
+ */
+public class FakeOpenAiServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final BlockingQueue<Response> script = new LinkedBlockingQueue<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile Function<String, Response> fallback = requestBody -> status(500);
+
+    public FakeOpenAiServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    public FakeOpenAiServer enqueue(Response... responses) {
+        script.addAll(List.of(responses));
+        return this;
+    }
+
+    public void setFallback(Response response) {
+        fallback = requestBody -> response;
+    }
+
+    public void setFallback(Function<String, Response> responder) {
+        fallback = responder;
+    }
+
+    public int requestCount() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public static Response ok(String content) {
+        return ok(content, 5, 5);
+    }
+
+    public static Response ok(String content, int promptTokens, int completionTokens) {
+        return new Response(200, "application/json", "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"created\":1," +
+                "\"model\":\"gpt-test\",\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\",\"content\":\"" + escape(content) +
+                "\"},\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":" + promptTokens + ",\"completion_tokens\":" +
+                completionTokens + ",\"total_tokens\":" + (promptTokens + completionTokens) + "}}");
+    }
+
+    public static Response status(int status) {
+        return new Response(status, "application/json",
+                "{\"error\":{\"message\":\"fake " + status + "\",\"type\":\"fake\",\"param\":null,\"code\":null}}");
+    }
+
+    public static Response malformed() {
+        return new Response(200, "application/json", "{\"id\":\"chatcmpl-1\",\"choices\":[{");
+    }
+
+    public static Response stream(String... deltas) {
+        StringBuilder body = new StringBuilder();
+        for (String delta : deltas) {
+            body.append("data: {\"id\":\"chatcmpl-1\",\"object\":\"chat.completion.chunk\",\"created\":1,\"model\":\"gpt-test\",")
+                    .append("\"choices\":[{\"index\":0,\"delta\":{\"content\":\"").append(delta).append("\"}}]}\n\n");
+        }
+        body.append("data: [DONE]\n\n");
+        return new Response(200, "text/event-stream", body.toString());
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String requestBody;
+        try (InputStream in = exchange.getRequestBody()) {
+            requestBody = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Response response = script.poll();
+        if (response == null) {
+            response = fallback.apply(requestBody);
+        }
+        try {
+            Thread.sleep(response.headerDelayMillis);
+            byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", response.contentType);
+            exchange.sendResponseHeaders(response.status, response.bodyDelayMillis > 0 ? 0 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.flush();
+                Thread.sleep(response.bodyDelayMillis);
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // The client gave up on this response
+        } finally {
+            exchange.close();
+        }
+    }
+
+    public static class Response {
+
+        private final int status;
+        private final String contentType;
+        private final String body;
+        private long headerDelayMillis;
+        private long bodyDelayMillis;
+
+        Response(int status, String contentType, String body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public Response delayed(long millis) {
+            headerDelayMillis = millis;
+            return this;
+        }
+
+        public Response stalled(long millis) {
+            bodyDelayMillis = millis;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.nadym.transcription.client;
+
+import com.theokanning.openai.OpenAiHttpException;
+import com.theokanning.openai.completion.chat.ChatCompletionChunk;
+import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.disposables.Disposable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static com.nadym.transcription.client.FakeOpenAiServer.malformed;
+import static com.nadym.transcription.client.FakeOpenAiServer.ok;
+import static com.nadym.transcription.client.FakeOpenAiServer.status;
+import static com.nadym.transcription.client.FakeOpenAiServer.stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpenAiClientTest {
+
+    private static final ChatCompletionRequest REQUEST = ChatCompletionRequest.builder()
+            .model("gpt-test")
+            .messages(List.of(new ChatMessage("user", "Summarise the consultation")))
+            .maxTokens(10)
+            .build();
+
+    private FakeOpenAiServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private OpenAiClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeOpenAiServer();
+        meterRegistry = new SimpleMeterRegistry();
+        client = new OpenAiClient();
+        ReflectionTestUtils.setField(client, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(client, "apiKey", "test-key");
+        ReflectionTestUtils.setField(client, "baseUrl", server.baseUrl());
+        ReflectionTestUtils.setField(client, "timeoutSeconds", 1L);
+        ReflectionTestUtils.setField(client, "requestsPerMinute", 600L);
+        ReflectionTestUtils.setField(client, "tokensPerMinute", 100_000L);
+        ReflectionTestUtils.setField(client, "maxAttempts", 4);
+        ReflectionTestUtils.setField(client, "initialBackoffMs", 10L);
+        ReflectionTestUtils.setField(client, "maxBackoffMs", 50L);
+        ReflectionTestUtils.setField(client, "failureThreshold", 5);
+        ReflectionTestUtils.setField(client, "openSeconds", 1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+        server.close();
+    }
+
+    @Test
+    void retriesRateLimitedAndFailedCallsUntilOneSucceeds() {
+        client.init();
+        server.enqueue(status(429), status(503), ok("done"));
+
+        String content = client.createChatCompletion(REQUEST, deadlineIn(5000)).getChoices().get(0).getMessage().getContent();
+
+        assertEquals("done", content);
+        assertEquals(3, server.requestCount());
+        assertEquals(2.0, meterRegistry.counter("openai.retries").count());
+    }
+
+    @Test
+    void retriesMalformedBodies() {
+        client.init();
+        server.enqueue(malformed(), ok("done"));
+
+        assertEquals("done", client.createChatCompletion(REQUEST, deadlineIn(5000)).getChoices().get(0).getMessage().getContent());
+        assertEquals(2, server.requestCount());
+    }
+
+    @Test
+    void retriesResponsesSlowerThanTheTimeout() {
+        client.init();
+        server.enqueue(ok("late").delayed(1500), ok("done"));
+
+        assertEquals("done", client.createChatCompletion(REQUEST, deadlineIn(5000)).getChoices().get(0).getMessage().getContent());
+        assertEquals(2, server.requestCount());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        client.init();
+        server.enqueue(status(400), ok("never"));
+
+        OpenAiHttpException e = assertThrows(OpenAiHttpException.class, () -> client.createChatCompletion(REQUEST, deadlineIn(5000)));
+
+        assertEquals(400, e.statusCode);
+        assertEquals(1, server.requestCount());
+    }
+
+    @Test
+    void stopsRetryingAtTheDeadline() {
+        ReflectionTestUtils.setField(client, "maxAttempts", 1000);
+        ReflectionTestUtils.setField(client, "failureThreshold", 1000);
+        ReflectionTestUtils.setField(client, "initialBackoffMs", 100L);
+        ReflectionTestUtils.setField(client, "maxBackoffMs", 100L);
+        client.init();
+        server.setFallback(status(503));
+
+        long start = System.nanoTime();
+        assertThrows(OpenAiHttpException.class, () -> client.createChatCompletion(REQUEST, deadlineIn(600)));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < 1000, "gave up after " + elapsedMs + " ms");
+        assertTrue(server.requestCount() > 1);
+    }
+
+    @Test
+    void opensTheCircuitAndLetsOneTrialThroughAfterwards() throws Exception {
+        ReflectionTestUtils.setField(client, "maxAttempts", 1);
+        ReflectionTestUtils.setField(client, "failureThreshold", 2);
+        client.init();
+        server.setFallback(status(500));
+
+        assertThrows(OpenAiHttpException.class, () -> client.createChatCompletion(REQUEST, deadlineIn(5000)));
+        assertThrows(OpenAiHttpException.class, () -> client.createChatCompletion(REQUEST, deadlineIn(5000)));
+        assertEquals(CircuitBreaker.State.OPEN, breaker().getState());
+
+        // Refused without reaching the server while open
+        assertThrows(OpenAiUnavailableException.class, () -> client.createChatCompletion(REQUEST, deadlineIn(5000)));
+        assertEquals(2, server.requestCount());
+
+        // A failed trial opens it again
+        Thread.sleep(1100);
+        assertThrows(OpenAiHttpException.class, () -> client.createChatCompletion(REQUEST, deadlineIn(5000)));
+        assertEquals(CircuitBreaker.State.OPEN, breaker().getState());
+
+        // A successful one closes it
+        Thread.sleep(1100);
+        server.enqueue(ok("done"));
+        client.createChatCompletion(REQUEST, deadlineIn(5000));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker().getState());
+        assertEquals(4, server.requestCount());
+    }
+
+    @Test
+    void cancelledStreamGivesBackTheTrialSlot() throws Exception {
+        ReflectionTestUtils.setField(client, "maxAttempts", 1);
+        ReflectionTestUtils.setField(client, "failureThreshold", 1);
+        client.init();
+        server.enqueue(status(500));
+        assertThrows(OpenAiHttpException.class, () -> client.createChatCompletion(REQUEST, deadlineIn(5000)));
+        Thread.sleep(1100);
+
+        // The stream takes the half-open trial, then its subscriber goes away before any outcome
+        server.enqueue(stream("never").stalled(3000));
+        Disposable subscription = client.streamChatCompletion(REQUEST).subscribe(chunk -> { }, error -> { });
+        subscription.dispose();
+
+        server.enqueue(ok("done"));
+        assertEquals("done", client.createChatCompletion(REQUEST, deadlineIn(5000)).getChoices().get(0).getMessage().getContent());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker().getState());
+    }
+
+    @Test
+    void streamsDeltasInOrder() {
+        client.init();
+        server.enqueue(stream("Hel", "lo"));
+
+        String content = StreamSupport.stream(client.streamChatCompletion(REQUEST).blockingIterable().spliterator(), false)
+                .map(ChatCompletionChunk::getChoices)
+                .map(choices -> choices.get(0).getMessage().getContent())
+                .collect(Collectors.joining());
+
+        assertEquals("Hello", content);
+    }
+
+    @Test
+    void refusesCallsBeyondTheRequestRate() {
+        ReflectionTestUtils.setField(client, "requestsPerMinute", 2L);
+        client.init();
+        server.setFallback(ok("done"));
+
+        client.createChatCompletion(REQUEST, deadlineIn(5000));
+        client.createChatCompletion(REQUEST, deadlineIn(5000));
+        // The next request slot is 30 s away, past the 1 s timeout
+        OpenAiUnavailableException e = assertThrows(OpenAiUnavailableException.class,
+                () -> client.createChatCompletion(REQUEST, deadlineIn(5000)));
+
+        assertTrue(e.getMessage().contains("rate limit"));
+        assertEquals(2, server.requestCount());
+    }
+
+    @Test
+    void slowsDownAfterTooManyRequests() {
+        client.init();
+        server.enqueue(status(429), ok("done"));
+
+        client.createChatCompletion(REQUEST, deadlineIn(5000));
+
+        double rate = meterRegistry.get("openai.rate-limit.requests-per-minute").gauge().value();
+        assertTrue(rate < 600, "rate stayed at " + rate);
+    }
+
+    private CircuitBreaker breaker() {
+        return (CircuitBreaker) ReflectionTestUtils.getField(client, "circuitBreaker");
+    }
+
+    private static long deadlineIn(long millis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
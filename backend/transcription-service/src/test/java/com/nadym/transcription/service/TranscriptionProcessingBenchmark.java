@@ -0,0 +1,214 @@
+package com.nadym.transcription.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nadym.transcription.client.FakeOpenAiServer;
+import com.nadym.transcription.client.OpenAiClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the combined extraction with one prompt per section against a local stub of the
+ * OpenAI endpoint. The stub bills about one token per four characters and answers after a
+ * fixed overhead plus a per-token generation delay, so the numbers show the shape of the
+ * trade-off rather than real model latencies. Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class TranscriptionProcessingBenchmark {
+
+    private static final int WARMUP = Integer.getInteger("benchmark.warmup", 5);
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 40);
+    private static final long OVERHEAD_MS = Long.getLong("benchmark.overhead-ms", 20);
+    private static final double MS_PER_TOKEN = Double.parseDouble(System.getProperty("benchmark.ms-per-token", "0.25"));
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong completionTokens = new AtomicLong();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private FakeOpenAiServer server;
+    private OpenAiClient client;
+    private String transcript;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new FakeOpenAiServer();
+        server.setFallback(this::answer);
+
+        client = new OpenAiClient();
+        ReflectionTestUtils.setField(client, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(client, "apiKey", "test-key");
+        ReflectionTestUtils.setField(client, "baseUrl", server.baseUrl());
+        ReflectionTestUtils.setField(client, "timeoutSeconds", 30L);
+        ReflectionTestUtils.setField(client, "requestsPerMinute", 1_000_000L);
+        ReflectionTestUtils.setField(client, "tokensPerMinute", 1_000_000_000L);
+        ReflectionTestUtils.setField(client, "maxAttempts", 1);
+        ReflectionTestUtils.setField(client, "initialBackoffMs", 10L);
+        ReflectionTestUtils.setField(client, "maxBackoffMs", 10L);
+        ReflectionTestUtils.setField(client, "failureThreshold", 1000);
+        ReflectionTestUtils.setField(client, "openSeconds", 1L);
+        ReflectionTestUtils.invokeMethod(client, "init");
+
+        StringBuilder text = new StringBuilder();
+        while (text.length() < 6000) {
+            text.append("Patient de 58 ans vu pour douleurs thoraciques d'effort depuis trois semaines. ")
+                    .append("Tension 145/90, auscultation normale, ECG sans anomalie. ")
+                    .append("Introduction d'aspirine 75 mg et bilan lipidique, revoir dans un mois. ");
+        }
+        transcript = text.toString();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(client, "shutdown");
+        server.close();
+    }
+
+    @Test
+    void combinedVersusPerSection() {
+        Stats sections = run("sections");
+        Stats combined = run("combined");
+
+        System.out.println(sections);
+        System.out.println(combined);
+
+        assertFalse(combined.partial, "combined mode fell back to per-section prompts");
+        assertTrue(combined.promptTokens < sections.promptTokens);
+    }
+
+    private Stats run(String mode) {
+        TranscriptionProcessingEngine engine = engine(mode);
+        try {
+            for (int i = 0; i < WARMUP; i++) {
+                engine.process(transcript + " #" + i);
+            }
+            promptTokens.set(0);
+            completionTokens.set(0);
+            calls.set(0);
+
+            long[] latencies = new long[ITERATIONS];
+            boolean partial = false;
+            for (int i = 0; i < ITERATIONS; i++) {
+                long start = System.nanoTime();
+                TranscriptionProcessingEngine.Result result = engine.process(transcript + " #" + (WARMUP + i));
+                latencies[i] = System.nanoTime() - start;
+                partial |= result.isPartial();
+            }
+            return new Stats(mode, latencies, calls.get(), promptTokens.get(), completionTokens.get(), partial);
+        } finally {
+            ReflectionTestUtils.invokeMethod(engine, "shutdown");
+        }
+    }
+
+    private TranscriptionProcessingEngine engine(String mode) {
+        // Caching off, every iteration reaches the stub
+        LlmResponseCache cache = new LlmResponseCache();
+        ReflectionTestUtils.setField(cache, "enabled", false);
+
+        TranscriptionProcessingEngine engine = new TranscriptionProcessingEngine();
+        ReflectionTestUtils.setField(engine, "responseCache", cache);
+        ReflectionTestUtils.setField(engine, "openAiClient", client);
+        ReflectionTestUtils.setField(engine, "model", "gpt-test");
+        ReflectionTestUtils.setField(engine, "poolSize", 8);
+        ReflectionTestUtils.setField(engine, "queueCapacity", 64);
+        ReflectionTestUtils.setField(engine, "callTimeoutSeconds", 30L);
+        ReflectionTestUtils.setField(engine, "requestTimeoutSeconds", 30L);
+        ReflectionTestUtils.setField(engine, "maxInputChars", 12000);
+        ReflectionTestUtils.setField(engine, "chunkChars", 8000);
+        ReflectionTestUtils.setField(engine, "overlapChars", 400);
+        ReflectionTestUtils.setField(engine, "maxChunkRounds", 3);
+        ReflectionTestUtils.setField(engine, "mode", mode);
+        ReflectionTestUtils.invokeMethod(engine, "init");
+        return engine;
+    }
+
+    // Each reply fills half of its token budget; a combined prompt gets every section in one JSON object
+    private FakeOpenAiServer.Response answer(String requestBody) {
+        try {
+            JsonNode request = MAPPER.readTree(requestBody);
+            int prompt = 0;
+            String systemPrompt = "";
+            for (JsonNode message : request.get("messages")) {
+                prompt += tokens(message.get("content").asText());
+                if ("system".equals(message.get("role").asText())) {
+                    systemPrompt = message.get("content").asText();
+                }
+            }
+
+            String content;
+            if (systemPrompt.contains("objet JSON")) {
+                ObjectNode reply = MAPPER.createObjectNode();
+                for (TranscriptionSection section : TranscriptionSection.values()) {
+                    reply.put(section.getJsonKey(), filler(section.getMaxTokens() / 2));
+                }
+                content = MAPPER.writeValueAsString(reply);
+            } else {
+                content = filler(request.get("max_tokens").asInt() / 2);
+            }
+            int completion = tokens(content);
+
+            calls.incrementAndGet();
+            promptTokens.addAndGet(prompt);
+            completionTokens.addAndGet(completion);
+            return FakeOpenAiServer.ok(content, prompt, completion)
+                    .delayed(OVERHEAD_MS + Math.round(completion * MS_PER_TOKEN));
+        } catch (IOException e) {
+            return FakeOpenAiServer.status(400);
+        }
+    }
+
+    private static int tokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+
+    private static String filler(int tokens) {
+        return "Texte clinique. ".repeat(Math.max(1, tokens / 4));
+    }
+
+    private static class Stats {
+
+        private final String mode;
+        private final long[] latencies;
+        private final int calls;
+        private final long promptTokens;
+        private final long completionTokens;
+        private final boolean partial;
+
+        Stats(String mode, long[] latencies, int calls, long promptTokens, long completionTokens, boolean partial) {
+            this.mode = mode;
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+            this.calls = calls;
+            this.promptTokens = promptTokens;
+            this.completionTokens = completionTokens;
+            this.partial = partial;
+        }
+
+        private double percentileMs(double percentile) {
+            int index = (int) Math.ceil(percentile * latencies.length) - 1;
+            return latencies[Math.max(0, index)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+
+        @Override
+        public String toString() {
+            int n = latencies.length;
+            return String.format("%-9s p50=%7.1f ms  p99=%7.1f ms  calls/transcript=%.1f  prompt tokens/transcript=%d  completion tokens/transcript=%d",
+                    mode, percentileMs(0.50), percentileMs(0.99), calls / (double) n, promptTokens / n, completionTokens / n);
+        }
+    }
+}
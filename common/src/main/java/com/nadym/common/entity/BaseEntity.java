@@ -13,8 +13,10 @@ import java.time.LocalDateTime;
 @EntityListeners(AuditingEntityListener.class)
 public abstract class BaseEntity {
 
+    // One pooled sequence per entity (<entity>_seq, increment 50): ids are allocated in blocks,
+    // so Hibernate can batch inserts. IdSequenceMigration aligns them with pre-existing rows.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
     private Long id;
 
     @CreatedDate